@@ -0,0 +1,36 @@
+#!/bin/sh
+# Builds the benchmarks, AllocationCheck and WallCheck into benchmark/bin,
+# with the simulation core they run against.
+#
+#   JMH=<jmh-core and jmh-generator-annprocess jars, : separated> benchmark/build.sh [-vector]
+#   java -cp "benchmark/bin:$JMH" edu.ksu.cis.android.project3.core.Benchmarks [jmh options]
+#   java -cp benchmark/bin edu.ksu.cis.android.project3.core.AllocationCheck
+#   java -cp benchmark/bin edu.ksu.cis.android.project3.core.WallCheck
+#
+# -vector adds benchmark/vector/src, which needs the incubating Vector API:
+# pass --add-modules jdk.incubator.vector to java as well. Without JMH set,
+# only the core and the two checks are built.
+#
+# The sources are Cp1252, not whatever the platform default is; javac
+# rejects a few of them without -encoding.
+
+set -e
+cd "$(dirname "$0")/.."
+
+core=src/edu/ksu/cis/android/project3/core
+bench=benchmark/src/edu/ksu/cis/android/project3/core
+out=benchmark/bin
+
+rm -rf "$out"
+mkdir -p "$out"
+
+if [ -z "$JMH" ]; then
+	echo "JMH not set, building the checks only" >&2
+	exec javac -encoding Cp1252 -d "$out" "$core"/*.java "$bench"/AllocationCheck.java "$bench"/WallCheck.java
+fi
+
+if [ "$1" = "-vector" ]; then
+	exec javac -encoding Cp1252 --add-modules jdk.incubator.vector -cp "$JMH" -d "$out" \
+		"$core"/*.java "$bench"/*.java benchmark/vector/src/edu/ksu/cis/android/project3/core/*.java
+fi
+exec javac -encoding Cp1252 -cp "$JMH" -d "$out" "$core"/*.java "$bench"/*.java
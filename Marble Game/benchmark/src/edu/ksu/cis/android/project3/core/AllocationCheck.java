@@ -0,0 +1,67 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.lang.management.ManagementFactory;
+
+/*
+ * Fails, exiting with 1, if formatting the HUD readout or recording into
+ * a Histogram allocates anything. It needs no JMH, only a HotSpot JVM,
+ * whose ThreadMXBean counts the bytes each thread has allocated:
+ *
+ *   javac -encoding Cp1252 -d out src/edu/ksu/cis/android/project3/core/*.java \
+ *       benchmark/src/edu/ksu/cis/android/project3/core/AllocationCheck.java
+ *   java -cp out edu.ksu.cis.android.project3.core.AllocationCheck
+ *
+ * Every call is made often enough first for the JIT to have compiled it,
+ * since the interpreter can allocate where the compiled code doesn't. The
+ * JIT can still allocate a few bytes of its own on this thread now and
+ * then, so each call is measured ROUNDS times and only the least counts;
+ * a call that allocates does so every round.
+ */
+public class AllocationCheck {
+	static final int WARMUP = 200000;
+	static final int CALLS = 100000;
+	static final int ROUNDS = 5;
+
+	interface Call {
+		void run(int n);
+	}
+
+	public static void main(String[] args) {
+		final com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.err.println("AllocationCheck: this JVM doesn't count allocations");
+			System.exit(2);
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		final HudText hud = new HudText();
+		final Histogram histogram = new Histogram();
+		boolean failed = false;
+		failed |= check(threads, "HudText.set", new Call() {
+			public void run(int n) {hud.set(n & 15, n % 480, -n % 800, n % 15, Integer.MIN_VALUE + n);}
+		});
+		failed |= check(threads, "Histogram.record", new Call() {
+			public void run(int n) {histogram.record((long) n * n);}
+		});
+		System.exit(failed ? 1 : 0);
+	}
+
+	// whether CALLS calls of call allocated anything, past what measuring does
+	private static boolean check(com.sun.management.ThreadMXBean threads, String name, Call call) {
+		final long id = Thread.currentThread().getId();
+		for (int n = 0; n < WARMUP; n++) {call.run(n);}
+		long bytes = Long.MAX_VALUE;
+		for (int r = 0; r < ROUNDS; r++) {
+			final long before = threads.getThreadAllocatedBytes(id);
+			final long empty = threads.getThreadAllocatedBytes(id) - before;
+			final long start = threads.getThreadAllocatedBytes(id);
+			for (int n = 0; n < CALLS; n++) {call.run(n);}
+			bytes = Math.min(bytes, threads.getThreadAllocatedBytes(id) - start - empty);
+		}
+		final boolean failed = bytes > 0;
+		System.out.println((failed ? "FAIL  " : "ok    ") + name + ": " + bytes + " bytes in " + CALLS + " calls");
+		return failed;
+	}
+}
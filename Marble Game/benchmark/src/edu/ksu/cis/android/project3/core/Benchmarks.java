@@ -0,0 +1,66 @@
+package edu.ksu.cis.android.project3.core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * JMH benchmarks for the simulation core's hot paths. They live in the
+ * core's package so they can reach its package-private entry points, but
+ * in their own source folder so they never end up in the app.
+ *
+ * Build them with JMH 1.x on the class path (jmh-core and, for javac to
+ * generate the harness, jmh-generator-annprocess), by benchmark/build.sh
+ * or by hand; the sources are Cp1252:
+ *
+ *   javac -encoding Cp1252 -cp $JMH -d out src/edu/ksu/cis/android/project3/core/*.java \
+ *       benchmark/src/edu/ksu/cis/android/project3/core/*.java
+ *   java -cp out:$JMH edu.ksu.cis.android.project3.core.Benchmarks [jmh options]
+ *
+ * VectorBenchmark, in benchmark/vector/src, uses the incubating Vector API
+ * and only builds with --add-modules jdk.incubator.vector given to javac
+ * and java; leave that folder out to build the rest without it, as
+ * build.sh does unless given -vector.
+ *
+ * Every benchmark reports operations per second. This runner always adds
+ * the GC profiler, which adds gc.alloc.rate.norm, the bytes allocated per
+ * operation, so a change that starts allocating in a hot path shows up
+ * next to one that slows it down. Any JMH command line options, such as a
+ * benchmark name pattern or -rf json, are passed through.
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(Benchmarks.class.getPackage().getName() + ".*Benchmark")
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/*
+	 * A level laid out on a 480 x 800, 240 dpi screen with the default
+	 * ball size, like the ones the game starts with.
+	 */
+	static MazeGeometry geometry(int CellCountX, int CellCountY) {
+		return TiltReplay.geometry(CellCountX, CellCountY, 480, 800, 240, 1/1.75f);
+	}
+
+	/*
+	 * Scatters the balls over the maze, repeatably, and points them at
+	 * the boxes they landed in.
+	 */
+	static void scatter(ParticleStore balls, MazeGeometry g, float spread) {
+		Rng random = new Rng(42);
+		for (int i = 0; i < balls.count; i++) {
+			balls.mPosX[i] = (random.nextFloat() * 2 - 1) * g.mHorizontalBound * spread;
+			balls.mPosY[i] = (random.nextFloat() * 2 - 1) * g.mVerticalBound * spread;
+			balls.mLastPosX[i] = balls.mPosX[i];
+			balls.mLastPosY[i] = balls.mPosY[i];
+			balls.mBoxX[i] = g.getBoxXFromPosition(balls.mPosX[i]);
+			balls.mBoxY[i] = g.getBoxYFromPosition(balls.mPosY[i]);
+		}
+	}
+}
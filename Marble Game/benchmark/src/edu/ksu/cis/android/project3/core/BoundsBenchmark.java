@@ -0,0 +1,48 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * ParticleSystem.resolveCollisionWithBounds, the maze wall constraint,
+ * for every ball spread over a trap-free maze.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoundsBenchmark {
+	@Param({"1", "100", "1000"})
+	int balls;
+
+	ParticleSystem system;
+
+	@Setup
+	public void setup() {
+		MazeGeometry g = Benchmarks.geometry(15, 22);
+		system = new ParticleSystem(balls, g, new Maze(15, 22, 0, 42), 0.1f, new Rng(42));
+		Benchmarks.scatter(system.getParticles(), g, 1f);
+	}
+
+	@Benchmark
+	public ParticleSystem resolveCollisionWithBounds() {
+		final ParticleSystem s = system;
+		for (int i = 0; i < balls; i++) {
+			s.resolveCollisionWithBounds(i);
+		}
+		return s;
+	}
+}
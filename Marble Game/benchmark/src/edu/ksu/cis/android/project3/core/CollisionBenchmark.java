@@ -0,0 +1,60 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The collision pass of ParticleSystem.update, up to NUM_MAX_ITERATIONS
+ * rounds of ball-ball and wall constraints. The balls start every
+ * operation from the same overlapping heap in the middle of the maze, so
+ * each operation resolves the same contacts; restoring them is part of
+ * the measured time but is a few array copies. From
+ * ParticleSystem.STRIPED_MIN_BALLS balls on the pass is the StripeSolver's,
+ * split over every core.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+	@Param({"10", "100", "1000"})
+	int balls;
+
+	ParticleSystem system;
+	ParticleStore store;
+	float[] startX;
+	float[] startY;
+
+	@Setup
+	public void setup() {
+		MazeGeometry g = Benchmarks.geometry(15, 22);
+		system = new ParticleSystem(balls, g, new Maze(15, 22, 0, 42), 0.1f, new Rng(42));
+		store = system.getParticles();
+		// a heap about twice as dense as the balls can pack
+		Benchmarks.scatter(store, g, (float) Math.sqrt(balls) * g.sBallDiameter
+				/ (2 * Math.min(g.mHorizontalBound, g.mVerticalBound)));
+		startX = store.mPosX.clone();
+		startY = store.mPosY.clone();
+	}
+
+	@Benchmark
+	public ParticleStore resolveCollisions() {
+		System.arraycopy(startX, 0, store.mPosX, 0, balls);
+		System.arraycopy(startY, 0, store.mPosY, 0, balls);
+		system.resolveCollisions();
+		return store;
+	}
+}
@@ -0,0 +1,36 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * One frame's HUD readout. gc.alloc.rate.norm should be 0 B/op; the
+ * concatenation it replaced made a String and a handful of boxes per
+ * ball per frame. AllocationCheck fails if it isn't.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HudBenchmark {
+	final HudText hud = new HudText();
+	int frame;
+
+	@Benchmark
+	public HudText set() {
+		final int f = frame++;
+		hud.set(f & 15, f % 480, -f % 800, f % 15, f % 22);
+		return hud;
+	}
+}
@@ -0,0 +1,103 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * One Verlet step over every ball, on its own with computePhysics and
+ * swept through the maze with computePhysics2, a ball at a time, and
+ * with integrate, a run of balls at a time. verlet is integrate's batch
+ * kernel on its own, the part the JIT can vectorize. The tilt is steep
+ * enough that the balls cross Boxes and hit walls.
+ *
+ * Setup checks that integrate puts every ball where computePhysics2
+ * does, to the bit, over a few hundred steps, and fails the run if not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntegratorBenchmark {
+	@Param({"1", "10", "100", "1000"})
+	int balls;
+
+	ParticleStore store;
+	final float dT = SimulationLoop.STEP_NANOS / 1000000000f;
+
+	@Setup
+	public void setup() {
+		MazeGeometry g = Benchmarks.geometry(15, 22);
+		store = new ParticleStore(balls, g, new MazeWalls(new Maze(15, 22, 0, 42), g), 0.1f, new Rng(42));
+		Benchmarks.scatter(store, g, 1f);
+		checkBitExact(g);
+	}
+
+	private void checkBitExact(MazeGeometry g) {
+		final MazeWalls walls = new MazeWalls(new Maze(15, 22, 0, 42), g);
+		final ParticleStore one = new ParticleStore(balls, g, walls, 0.1f, new Rng(42));
+		final ParticleStore batch = new ParticleStore(balls, g, walls, 0.1f, new Rng(42));
+		Benchmarks.scatter(one, g, 1f);
+		Benchmarks.scatter(batch, g, 1f);
+		for (int s = 0; s < 500; s++) {
+			// a turning tilt and an uneven step, so every term counts
+			final float sx = 5f * (float) Math.cos(s * 0.05);
+			final float sy = 5f * (float) Math.sin(s * 0.05);
+			final float dTC = 1f + (s % 3) * 0.01f;
+			for (int i = one.nextEnabled(0); i >= 0; i = one.nextEnabled(i + 1)) {
+				one.computePhysics2(i, sx, sy, dT, dTC);
+			}
+			batch.integrate(sx, sy, dT, dTC);
+		}
+		for (int i = 0; i < balls; i++) {
+			if (Float.floatToRawIntBits(one.mPosX[i]) != Float.floatToRawIntBits(batch.mPosX[i])
+					|| Float.floatToRawIntBits(one.mPosY[i]) != Float.floatToRawIntBits(batch.mPosY[i])
+					|| Float.floatToRawIntBits(one.mLastPosX[i]) != Float.floatToRawIntBits(batch.mLastPosX[i])
+					|| Float.floatToRawIntBits(one.mLastPosY[i]) != Float.floatToRawIntBits(batch.mLastPosY[i])) {
+				throw new IllegalStateException("integrate and computePhysics2 differ at ball " + i);
+			}
+		}
+	}
+
+	@Benchmark
+	public ParticleStore computePhysics() {
+		final ParticleStore s = store;
+		for (int i = s.nextEnabled(0); i >= 0; i = s.nextEnabled(i + 1)) {
+			s.computePhysics(i, 2.5f, -4f, dT, 1f);
+		}
+		return s;
+	}
+
+	@Benchmark
+	public ParticleStore computePhysics2() {
+		final ParticleStore s = store;
+		for (int i = s.nextEnabled(0); i >= 0; i = s.nextEnabled(i + 1)) {
+			s.computePhysics2(i, 2.5f, -4f, dT, 1f);
+		}
+		return s;
+	}
+
+	@Benchmark
+	public ParticleStore integrate() {
+		store.integrate(2.5f, -4f, dT, 1f);
+		return store;
+	}
+
+	@Benchmark
+	public ParticleStore verlet() {
+		store.verlet(0, balls, -2.5f, 4f, dT * dT, 1f);
+		return store;
+	}
+}
@@ -0,0 +1,59 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Maze generation with each of the generators. MainActivity allows up to
+ * one box per 12 pixels each way, so 40 x 66 is the largest maze on a
+ * 480 x 800 screen and 90 x 160 the largest on a 1080 x 1920 one. A trap
+ * ratio of 7 is the game's default. The runner's gc.alloc.rate.norm is
+ * the memory each generator takes for a maze of that size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeBenchmark {
+	@Param({"GROWING_TREE", "KRUSKAL", "WILSON", "ELLER"})
+	String algorithm;
+
+	@Param({"15x22", "40x66", "90x160"})
+	String size;
+
+	@Param({"0", "7"})
+	float TrapBoxRatio;
+
+	MazeGenerator generator;
+	int CellCountX;
+	int CellCountY;
+	int TrapCount;
+	long seed;
+
+	@Setup
+	public void setup() {
+		generator = MazeAlgorithm.valueOf(algorithm).generator;
+		String[] xy = size.split("x");
+		CellCountX = Integer.parseInt(xy[0]);
+		CellCountY = Integer.parseInt(xy[1]);
+		TrapCount = TrapBoxRatio == 0 ? 0 : (int) (CellCountX * CellCountY / TrapBoxRatio);
+	}
+
+	@Benchmark
+	public Maze generate() {
+		return new Maze(CellCountX, CellCountY, TrapCount, generator, seed++);
+	}
+}
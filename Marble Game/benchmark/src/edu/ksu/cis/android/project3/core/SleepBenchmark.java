@@ -0,0 +1,66 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A whole ParticleSystem.update of balls that have come to rest in a
+ * corner under a steady tilt. settled leaves the sleeping balls asleep;
+ * awake wakes them all first, which is what every step cost before balls
+ * could sleep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SleepBenchmark {
+	static final float TILT_X = -3f;
+	static final float TILT_Y = 3f;
+
+	@Param({"100", "1000"})
+	int balls;
+
+	ParticleSystem system;
+	ParticleStore store;
+	long now;
+
+	@Setup
+	public void setup() {
+		MazeGeometry g = Benchmarks.geometry(40, 60);
+		system = new ParticleSystem(balls, g, new Maze(40, 60, 0, 42), 0.1f, new Rng(42));
+		store = system.getParticles();
+		// half a minute for the balls to pile up and fall asleep
+		for (int s = 0; s < 30 * 120; s++) {step();}
+	}
+
+	private void step() {
+		now += SimulationLoop.STEP_NANOS;
+		system.update(TILT_X, TILT_Y, now);
+	}
+
+	@Benchmark
+	public ParticleStore settled() {
+		step();
+		return store;
+	}
+
+	@Benchmark
+	public ParticleStore awake() {
+		store.wakeAll();
+		step();
+		return store;
+	}
+}
@@ -0,0 +1,69 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Fails, exiting with 1, if a step ever ends with a ball's center past
+ * the walls of the Box it is recorded in, which is the Box traps and the
+ * goal are tested against. A pile of balls is tilted at random in a
+ * Kruskal maze, once below ParticleSystem.STRIPED_MIN_BALLS, on the serial
+ * collision pass, and once at it, on the StripeSolver's:
+ *
+ *   benchmark/build.sh
+ *   java -cp benchmark/bin edu.ksu.cis.android.project3.core.WallCheck [steps]
+ */
+public class WallCheck {
+	// a new tilt every TILT_STEPS, up to MAX_TILT m/s^2 each way
+	static final int TILT_STEPS = 60;
+	static final float MAX_TILT = 40;
+	// rounding, well under anything a ball could be seen past a wall by
+	static final float SLACK = 1e-6f;
+
+	public static void main(String[] args) {
+		final int steps = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+		boolean failed = false;
+		failed |= check(ParticleSystem.STRIPED_MIN_BALLS - 1, steps);
+		failed |= check(ParticleSystem.STRIPED_MIN_BALLS, steps);
+		failed |= check(1000, steps);
+		System.exit(failed ? 1 : 0);
+	}
+
+	// whether any of count balls got past a wall in steps steps
+	private static boolean check(int count, int steps) {
+		// as Benchmarks.geometry, which needs JMH on the class path
+		final MazeGeometry g = TiltReplay.geometry(15, 22, 480, 800, 240, 1/1.75f);
+		final Maze maze = new Maze(15, 22, 0, MazeAlgorithm.KRUSKAL.generator, 42);
+		final MazeWalls w = new MazeWalls(maze, g);
+		final ParticleSystem system = new ParticleSystem(count, g, maze, 0.1f, new Rng(42));
+		final ParticleStore balls = system.getParticles();
+		final Rng tilts = new Rng(43);
+		float sx = 0;
+		float sy = 0;
+		long violations = 0;
+		int first = -1;
+		float worst = 0;
+		for (int s = 0; s < steps; s++) {
+			if (s % TILT_STEPS == 0) {
+				sx = (tilts.nextFloat() * 2 - 1) * MAX_TILT;
+				sy = (tilts.nextFloat() * 2 - 1) * MAX_TILT;
+			}
+			// keep playing past the goal
+			system.setPaused(false);
+			system.update(sx, sy, (s + 1) * SimulationLoop.STEP_NANOS);
+			for (int i = balls.nextEnabled(0); i >= 0; i = balls.nextEnabled(i + 1)) {
+				final int c = balls.mBoxX[i] * w.CellCountY + balls.mBoxY[i];
+				final float x = balls.mPosX[i];
+				final float y = balls.mPosY[i];
+				final float past = Math.max(Math.max(w.xmin[c] - x, x - w.xmax[c]),
+						Math.max(w.ymin[c] - y, y - w.ymax[c]));
+				if (past > SLACK) {
+					if (violations++ == 0) {first = s;}
+					worst = Math.max(worst, past);
+				}
+			}
+		}
+		final boolean failed = violations > 0;
+		System.out.println((failed ? "FAIL  " : "ok    ") + count + " balls" + (count >= ParticleSystem.STRIPED_MIN_BALLS ? ", striped" : "")
+				+ ": " + violations + " past a wall in " + steps + " steps"
+				+ (failed ? ", first at step " + first + ", by up to " + worst * 1000 + " mm" : ""));
+		return failed;
+	}
+}
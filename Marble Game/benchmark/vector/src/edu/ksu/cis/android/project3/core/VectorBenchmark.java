@@ -0,0 +1,74 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * IntegratorBenchmark.verlet's kernel written with the Vector API, next
+ * to the plain loop for the JIT to vectorize on its own. Needs the
+ * incubating module on both javac's and java's command line:
+ *
+ *   --add-modules jdk.incubator.vector
+ *
+ * and the benchmark/vector/src source folder added to the build. Setup
+ * checks the two kernels agree to the bit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorBenchmark {
+	@Param({"100", "1000"})
+	int balls;
+
+	ParticleStore store;
+	final float dT = SimulationLoop.STEP_NANOS / 1000000000f;
+
+	@Setup
+	public void setup() {
+		MazeGeometry g = Benchmarks.geometry(15, 22);
+		MazeWalls walls = new MazeWalls(new Maze(15, 22, 0, 42), g);
+		store = new ParticleStore(balls, g, walls, 0.1f, new Rng(42));
+		Benchmarks.scatter(store, g, 1f);
+
+		ParticleStore plain = new ParticleStore(balls, g, walls, 0.1f, new Rng(42));
+		ParticleStore vector = new ParticleStore(balls, g, walls, 0.1f, new Rng(42));
+		Benchmarks.scatter(plain, g, 1f);
+		Benchmarks.scatter(vector, g, 1f);
+		for (int s = 0; s < 10; s++) {
+			plain.verlet(0, balls, -2.5f + s, 4f, dT * dT, 1.01f);
+			VectorVerlet.verlet(vector, 0, balls, -2.5f + s, 4f, dT * dT, 1.01f);
+		}
+		for (int i = 0; i < balls; i++) {
+			if (Float.floatToRawIntBits(plain.mStepX[i]) != Float.floatToRawIntBits(vector.mStepX[i])
+					|| Float.floatToRawIntBits(plain.mStepY[i]) != Float.floatToRawIntBits(vector.mStepY[i])) {
+				throw new IllegalStateException("the vector kernel differs at ball " + i);
+			}
+		}
+	}
+
+	@Benchmark
+	public ParticleStore plain() {
+		store.verlet(0, balls, -2.5f, 4f, dT * dT, 1f);
+		return store;
+	}
+
+	@Benchmark
+	public ParticleStore vector() {
+		VectorVerlet.verlet(store, 0, balls, -2.5f, 4f, dT * dT, 1f);
+		return store;
+	}
+}
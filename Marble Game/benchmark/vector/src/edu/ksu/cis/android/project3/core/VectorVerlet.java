@@ -0,0 +1,46 @@
+package edu.ksu.cis.android.project3.core;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * ParticleStore.verlet written against the Vector API, for desktop JVMs
+ * that have it; Android doesn't, so it is only ever benchmarked. Lane for
+ * lane the operations are verlet's, in the same order and without fused
+ * multiply-adds, so it rounds the same. The balls past the last whole
+ * vector are done by verlet itself.
+ */
+final class VectorVerlet {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	static void verlet(ParticleStore balls, int from, int end, float ax, float ay, float dTdT, float dTC) {
+		final float[] posX = balls.mPosX;
+		final float[] posY = balls.mPosY;
+		final float[] lastX = balls.mLastPosX;
+		final float[] lastY = balls.mLastPosY;
+		final float[] accelX = balls.mAccelX;
+		final float[] accelY = balls.mAccelY;
+		final float[] friction = balls.mOneMinusFriction;
+		final float[] stepX = balls.mStepX;
+		final float[] stepY = balls.mStepY;
+		final FloatVector vax = FloatVector.broadcast(SPECIES, ax);
+		final FloatVector vay = FloatVector.broadcast(SPECIES, ay);
+		int i = from;
+		for (final int bound = from + SPECIES.loopBound(end - from); i < bound; i += SPECIES.length()) {
+			final FloatVector x = FloatVector.fromArray(SPECIES, posX, i);
+			final FloatVector y = FloatVector.fromArray(SPECIES, posY, i);
+			final FloatVector f = FloatVector.fromArray(SPECIES, friction, i).mul(dTC);
+			f.mul(x.sub(FloatVector.fromArray(SPECIES, lastX, i)))
+					.add(FloatVector.fromArray(SPECIES, accelX, i).mul(dTdT))
+					.intoArray(stepX, i);
+			f.mul(y.sub(FloatVector.fromArray(SPECIES, lastY, i)))
+					.add(FloatVector.fromArray(SPECIES, accelY, i).mul(dTdT))
+					.intoArray(stepY, i);
+			x.intoArray(lastX, i);
+			y.intoArray(lastY, i);
+			vax.intoArray(accelX, i);
+			vay.intoArray(accelY, i);
+		}
+		balls.verlet(i, end, ax, ay, dTdT, dTC);
+	}
+}
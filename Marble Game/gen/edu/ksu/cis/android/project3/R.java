@@ -8,6 +8,9 @@
 package edu.ksu.cis.android.project3;
 
 public final class R {
+    public static final class array {
+        public static final int maze_algorithms=0x7f070000;
+    }
     public static final class attr {
     }
     public static final class drawable {
@@ -20,7 +23,12 @@ public final class R {
         public static final int button2=0x7f06000a;
         public static final int checkBox1=0x7f060011;
         public static final int checkBox2=0x7f060018;
+        public static final int checkBox3=0x7f060019;
+        public static final int checkBox4=0x7f06001e;
+        public static final int checkBox5=0x7f06001f;
+        public static final int checkBox6=0x7f060020;
         public static final int editText1=0x7f060006;
+        public static final int editText10=0x7f060023;
         public static final int editText2=0x7f060007;
         public static final int editText3=0x7f06000c;
         public static final int editText4=0x7f06000e;
@@ -28,12 +36,17 @@ public final class R {
         public static final int editText6=0x7f060013;
         public static final int editText7=0x7f060016;
         public static final int editText8=0x7f060017;
-        public static final int menu_settings=0x7f060019;
+        public static final int editText9=0x7f06001d;
+        public static final int menu_settings=0x7f060021;
+        public static final int spinner1=0x7f06001b;
         public static final int textView1=0x7f060008;
         public static final int textView10=0x7f06000f;
         public static final int textView11=0x7f060012;
         public static final int textView12=0x7f060014;
         public static final int textView13=0x7f060015;
+        public static final int textView14=0x7f06001a;
+        public static final int textView15=0x7f06001c;
+        public static final int textView16=0x7f060022;
         public static final int textView2=0x7f060001;
         public static final int textView3=0x7f060002;
         public static final int textView4=0x7f060003;
@@ -50,11 +63,13 @@ public final class R {
         public static final int activity_main=0x7f050000;
     }
     public static final class string {
+        public static final int _0_05=0x7f040021;
         public static final int _0_5714285=0x7f040014;
         public static final int _1=0x7f040011;
         public static final int _10=0x7f04000c;
         public static final int _15=0x7f04000b;
         public static final int _7_0=0x7f040016;
+        public static final int adaptive_sensor_rate=0x7f04001d;
         public static final int alarm_mode=0x7f040013;
         public static final int app_name=0x7f040000;
         public static final int automatic=0x7f04000a;
@@ -66,13 +81,19 @@ public final class R {
         public static final int displayheight=0x7f040017;
         public static final int fall_2012=0x7f040009;
         public static final int grant_borthwick=0x7f040005;
+        public static final int frame_metrics=0x7f04001f;
         public static final int hello_world=0x7f040001;
+        public static final int maze_algorithm=0x7f04001b;
         public static final int menu_settings=0x7f040002;
         public static final int project_3=0x7f040008;
         public static final int quit=0x7f04000f;
+        public static final int record_replay=0x7f04001e;
         public static final int ratio_of_boxes_to_traps=0x7f040012;
         public static final int rows=0x7f04000d;
+        public static final int seed=0x7f04001c;
         public static final int start_game=0x7f040004;
+        public static final int surface_view=0x7f04001a;
+        public static final int tilt_time_constant=0x7f040020;
         public static final int title_activity_main=0x7f040003;
         public static final int wall_height=0x7f040019;
         public static final int wall_width=0x7f040018;
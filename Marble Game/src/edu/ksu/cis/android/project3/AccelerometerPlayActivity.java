@@ -16,19 +16,23 @@
 
 package edu.ksu.cis.android.project3;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import edu.ksu.cis.android.project3.R;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import edu.ksu.cis.android.project3.core.AdaptiveInput;
+import edu.ksu.cis.android.project3.core.FrameMetrics;
+import edu.ksu.cis.android.project3.core.Maze;
+import edu.ksu.cis.android.project3.core.MazeGeometry;
+import edu.ksu.cis.android.project3.core.ParticleStore;
+import edu.ksu.cis.android.project3.core.ParticleSystem;
+import edu.ksu.cis.android.project3.core.ReplayRecorder;
+import edu.ksu.cis.android.project3.core.Rng;
+import edu.ksu.cis.android.project3.core.SimulationLoop;
 import android.app.Activity;
 import android.content.Context;
-import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.BitmapFactory.Options;
-import android.graphics.Color;
-import android.graphics.Paint;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
@@ -57,6 +61,11 @@ import android.widget.Toast;
 
 public class AccelerometerPlayActivity extends Activity {
 
+	// where the recording of the last play goes, for ReplayPlayer
+	static final String REPLAY_FILE = "replay.mrl";
+	// where FrameMetrics.dump goes
+	static final String METRICS_FILE = "metrics.txt";
+
 	final Context context = this;
 	public SimulationView mSimulationView;
 	private SensorManager mSensorManager;
@@ -64,7 +73,11 @@ public class AccelerometerPlayActivity extends Activity {
 	private WindowManager mWindowManager;
 	private Display mDisplay;
 	private WakeLock mWakeLock;
-    private boolean pause = false;
+	private DisplayMetrics mMetrics;
+	private Level mLevel;
+	// what the level below this one is started with
+	private Bundle mNextParameters;
+	private final LevelStack mLevels = new LevelStack();
 
 	/** Called when the activity is first created. */
 	@Override
@@ -84,22 +97,30 @@ public class AccelerometerPlayActivity extends Activity {
 		mWakeLock = mPowerManager.newWakeLock(
 				PowerManager.SCREEN_BRIGHT_WAKE_LOCK, getClass().getName());
 
+		mMetrics = new DisplayMetrics();
+		mDisplay.getMetrics(mMetrics);
+		Level level = new Level(getResources(), mMetrics, getIntent().getExtras());
+
 		// instantiate our simulation view and set it as the activity's content
-		mSimulationView = new SimulationView(this);
+		mSimulationView = new SimulationView(this, level);
+		enterLevel(level);
 		Toast("You've fallen down to level "+((Integer)mSimulationView.level).toString()+"!");
-		setContentView(mSimulationView);
+		/*
+		 * the view owns the simulation either way; with SurfaceView
+		 * rendering on it is never attached and a MazeSurfaceView draws
+		 * its frames on a thread of its own instead
+		 */
+		if (mSimulationView.SurfaceRendering) {
+			setContentView(new MazeSurfaceView(this, mSimulationView.mRenderer, mDisplay.getRefreshRate()));
+		} else {
+			setContentView(mSimulationView);
+		}
 	}
 	
 	@Override
 	protected void onResume() {
 		super.onResume();
-		for(int i = 0; i<mSimulationView.NUM_PARTICLES;++i){
-			int mx = mSimulationView.mBalls[i].mBoxX;
-			int my = mSimulationView.mBalls[i].mBoxY;
-			mSimulationView.Boxes[mx][my].isTrap = false;
-			mSimulationView.mBalls[i].enabled = true;
-		}
-		pause = false;
+		mSimulationView.releaseBalls();
 		/*
 		 * when the activity is resumed, we acquire a wake-lock so that the
 		 * screen stays on, since the user will likely not be fiddling with the
@@ -114,558 +135,227 @@ public class AccelerometerPlayActivity extends Activity {
 	@Override
 	protected void onPause() {
 		super.onPause();
-		pause = true;
 		/*
 		 * When the activity is paused, we make sure to stop the simulation,
 		 * release our sensor resources and wake locks
 		 */
 
-		// Stop the simulation
+		/*
+		 * Stop the simulation, then pause it. The other way round the
+		 * loop could take paused steps a replay doesn't know about.
+		 */
 		mSimulationView.stopSimulation();
+		mSimulationView.mParticleSystem.setPaused(true);
+		mSimulationView.saveReplay();
+		mSimulationView.saveMetrics();
 
 		// and release our wake-lock
 		mWakeLock.release();
 	}
 
-	@Override
-	public void onActivityResult(int requestCode, int resultCode, Intent data){
-		super.onActivityResult(requestCode, resultCode, data);
-		if(resultCode!=requestCode){
+	/*
+	 * Makes level the one being played and starts building the one below
+	 * it, so that it is most likely ready by the time the balls fall.
+	 */
+	private void enterLevel(Level level) {
+		mLevel = level;
+		mNextParameters = level.next();
+		LevelLoader.preload(getResources(), mMetrics, mNextParameters);
+	}
+
+	/*
+	 * Every level is played in this one activity. Falling keeps what it
+	 * takes to come back on mLevels and swaps the next level in; reaching
+	 * the goal swaps the one above back in, or finishes with the result
+	 * MainActivity takes for an escape from the top level.
+	 */
+	private void fallDown() {
+		mLevels.push(mLevel, mSimulationView.mBalls);
+		Level level = LevelLoader.take(getResources(), mMetrics, mNextParameters);
+		mSimulationView.setLevel(level, null);
+		enterLevel(level);
+		Toast("You've fallen down to level "+((Integer)mSimulationView.level).toString()+"!");
+	}
+
+	private void riseUp() {
+		if (mLevels.isEmpty()) {
+			setResult(1, getIntent());
 			finish();
-		}else{
-			Toast("You've risent to level "+((Integer)mSimulationView.level).toString() + "!");
+			return;
 		}
+		Level level = new Level(getResources(), mMetrics, mLevels.peekParameters(), mLevels.peekMaze());
+		mSimulationView.setLevel(level, mLevels);
+		enterLevel(level);
+		Toast("You've risent to level "+((Integer)mSimulationView.level).toString() + "!");
+	}
+
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		LevelLoader.discard(mNextParameters.getInt("LevelTicket"));
 	}
 	
-	class SimulationView extends View implements SensorEventListener {		
+	class SimulationView extends View implements SensorEventListener, ParticleSystem.Listener, AdaptiveInput.Listener {
 		// friction of the virtual table and air
 		private Sensor mAccelerometer;
-		private long mLastT;
-		private float mLastDeltaT;
-		private float mXDpi;
-		private float mYDpi;
-		private float mMetersToPixelsX;
-		private float mMetersToPixelsY;
-		private Bitmap mBitmap;
-		private Bitmap mWood;
-		private Paint lineUp;
-		private Paint lineAcross;
-		private Paint TrapPaint;
-		private float mXOrigin;
-		private float mYOrigin;
-		private float mSensorX;
-		private float mSensorY;
-		private long mSensorTimeStamp;
-		private long mCpuTimeStamp;
-		private float mHorizontalBound;
-		private float mVerticalBound;
-		private float xc;
-		private float yc;
-		private float xs;
-		private float ys;
+		private MazeGeometry mGeometry;
 		private ParticleSystem mParticleSystem;
-		private Box[][] Boxes;
-		private int CellCountX;
-		private int CellCountY;
-		private float BallSize;
+		private SimulationLoop mSimulationLoop;
+		private MazeRenderer mRenderer;
+		private Maze mMaze;
 		private float sFriction;
-		private float sBallDiameter;
-		private float sBallDiameter2;
-		public Particle mBalls[];
-		private int TrapCount;
-		private float TrapBoxRatio;
-		private float boxHeight;
-		private float boxWidth;
-		private DisplayMetrics metrics;
-		private float mazeHeightPixels;
-		private float mazeWidthPixels;
-		private int wallWidth;
-		private int wallHeight;
+		public ParticleStore mBalls;
 		public int NUM_PARTICLES;
 		private int level;
-		private boolean AlarmMode;
-		private boolean AutomaticBorders;
-		
-		private int DisplayHeight;
-
-		/*
-		 * Each of our particle holds its previous and current position, its
-		 * acceleration. for added realism each particle has its own friction
-		 * coefficient.
-		 */
-		public class Particle {
-			private float mPosX;
-			private float mPosY;
-			private float mAccelX;
-			private float mAccelY;
-			private float mLastPosX;
-			private float mLastPosY;
-			private float mOneMinusFriction;
-
-			private int mBoxX;
-			private int mBoxY;
-			@SuppressWarnings("unused")
-			private int mLastBoxX;
-			@SuppressWarnings("unused")
-			private int mLastBoxY;
-			private float mass;
-			public boolean enabled;
-
-			Particle() {
-				// make each particle a bit different by randomizing its
-				// coefficient of friction
-				final float r = ((float) Math.random() - 0.5f) * 0.2f;
-				mOneMinusFriction = 1f - sFriction + r;
-				//Start particles out directly outside 0,0
-				mPosX = -mHorizontalBound;
-				mPosY = mVerticalBound;
-				mLastPosX = -mHorizontalBound;
-				mLastPosY = mVerticalBound;
-				mass = 1000.0f ;//+ ((float) (Math.random()-.5f)*100); // mass of our virtual object
-				enabled = true;
-			}
-			
-			public void computePhysics2(float sx, float sy, float dT, float dTC) {
-				// Force of gravity applied to our virtual object
-				final float ax = -sx;
-				final float ay = -sy;
-				final float dTdT = dT * dT;
-				float x = mPosX;
-				float y = mPosY;
-				float dx = mOneMinusFriction * dTC	* (mPosX - mLastPosX) + mAccelX * dTdT;
-				float dy = mOneMinusFriction * dTC	* (mPosY - mLastPosY) + mAccelY * dTdT;
-				mLastPosX = mPosX;
-				mLastPosY = mPosY;
-				float slope = dy/dx;
-				float direction;
-				if(dx>0){direction=1;}
-				else{direction = -1;}
-				while(dx!=0){
-					float dx0=0;
-					float dy0=0;//figure out which may have a collision first(if any) and adjust x and y. Repeat as necessary
-				
-				}
-				
-				
-				
-				
-				mPosX = x;
-				mPosY = y;
-				mAccelX = ax;
-				mAccelY = ay;
-			}
-
-			public void computePhysics(float sx, float sy, float dT, float dTC) {
-				// Force of gravity applied to our virtual object
-				final float gx = -sx * mass;
-				final float gy = -sy * mass;
-
-				/*
-				 * F = mA <=> A = F / m We could simplify the code by
-				 * completely eliminating "m" (the mass) from all the equations,
-				 * but it would hide the concepts from this sample code.
-				 */
-				final float invm = 1.0f / mass;
-				final float ax = gx * invm;
-				final float ay = gy * invm;
-
-				/*
-				 * Time-corrected Verlet integration The position Verlet
-				 * integrator is defined as x(t+t) = x(t) + x(t) - x(t-t) +
-				 * a(t)t2 However, the above equation doesn't handle variable
-				 * t very well, a time-corrected version is needed: x(t+t) =
-				 * x(t) + (x(t) - x(t-t)) * (t/t_prev) + a(t)t2 We also add
-				 * a simple friction term (f) to the equation: x(t+t) = x(t) +
-				 * (1-f) * (x(t) - x(t-t)) * (t/t_prev) + a(t)t2
-				 */
-				final float dTdT = dT * dT;
-				final float x = mPosX + mOneMinusFriction * dTC	* (mPosX - mLastPosX) + mAccelX * dTdT;
-				final float y = mPosY + mOneMinusFriction * dTC	* (mPosY - mLastPosY) + mAccelY * dTdT;
-				mLastPosX = mPosX;
-				mLastPosY = mPosY;
-				mPosX = x;
-				mPosY = y;
-				mAccelX = ax;
-				mAccelY = ay;
-			}
+		private boolean SurfaceRendering;
+		private boolean mStarted;
+		private ReplayRecorder mRecorder;
+		private FrameMetrics mMetrics;
 
+		public void startSimulation() {
 			/*
-			 * Resolving constraints and collisions with the Verlet integrator
-			 * can be very simple, we simply need to move a colliding or
-			 * constrained particle in such way that the constraint is
-			 * satisfied.
+			 * The simulation's AdaptiveInput low-pass filters the events to
+			 * "extract" the gravity component of the acceleration, whatever
+			 * their rate, and picks the rate: slower while nothing moves, to
+			 * use less power and CPU resources, faster while the device is
+			 * shaken, for less latency. Where the sensor can batch, it
+			 * samples faster but still wakes us up as rarely.
 			 */
-			
-			public void resolveCollisionWithBounds2() {				
-				if(!enabled){return;}
-				float w = mazeWidthPixels;
-				float h = mazeHeightPixels;
-				float BoxW = w/CellCountX;
-				float BoxH = h/CellCountY;
-				float maxXPixels,minXPixels,maxYPixels,minYPixels;
-
-				if(!Boxes[mBoxX][mBoxY].hasRight){maxXPixels = (mBoxX+1)*BoxW - w/2-1;}
-				else{maxXPixels = (mBoxX+2)*BoxW - w/2-1;}
-				if(!Boxes[mBoxX][mBoxY].hasLeft){minXPixels = (mBoxX)*BoxW - w/2+1;}
-				else{minXPixels = (mBoxX-1)*BoxW - w/2+1;}
-				if(!Boxes[mBoxX][mBoxY].hasUp){maxYPixels = (mBoxY)*BoxH - h/2+1;}
-				else{maxYPixels = (mBoxY-1)*BoxH - h/2+1;}
-				if(!Boxes[mBoxX][mBoxY].hasDown){minYPixels = (mBoxY+1)*BoxH - h/2+1;}
-				else{minYPixels = (mBoxY+2)*BoxH - h/2+1;}
-
-				/*float xmax = Math.min(maxXPixels/xs - sBallDiameter/2,mHorizontalBound);
-				float xmin = Math.max(minXPixels/xs + sBallDiameter/2,-mHorizontalBound);
-				float ymax = Math.min(-maxYPixels/ys - sBallDiameter/2,mVerticalBound);
-				float ymin = Math.max(-minYPixels/ys + sBallDiameter/2,-mVerticalBound);*/
-				float xmax = mHorizontalBound;
-				float xmin = -mHorizontalBound;
-				float ymax = mVerticalBound;
-				float ymin = -mVerticalBound;
-
-				float x = mPosX;
-				float y = mPosY;
-				mLastPosX=mPosX;
-				mLastPosY=mPosY;
-				//Might switch this back to main edges, or change to allow outside of bounds area.
-				if (x > xmax) {	mPosX = xmax; } 
-				else if (x < xmin) { mPosX = xmin; }
-				if (y > ymax) {	mPosY = ymax; } 
-				else if (y < ymin) { mPosY = ymin; }
-				//Need to figure out which boxes must be passed through and then which borders need to be checked.
-				@SuppressWarnings("unused")
-				int NewXBox = getBoxXFromPixel(xc + x*xs);
-				@SuppressWarnings("unused")
-				int NewYBox = getBoxYFromPixel(yc - y*ys);
-				mLastBoxX = mBoxX;
-				mLastBoxY = mBoxY;
-				mBoxX = getBoxXFromPixel(xc + mPosX*xs);
-				mBoxY = getBoxYFromPixel(yc - mPosY*ys);
-				/*if(Boxes[mBoxX][mBoxY].isTrap){
-					enabled = false;
-					if(!pause){
-						boolean more = false;
-						for(int i=0;i<NUM_PARTICLES;++i){
-							more|=mBalls[i].enabled;
-							}
-						if(!more){
-							Intent levelDown = new Intent(context, AccelerometerPlayActivity.class);
-							Bundle parem = SetParameters();
-							levelDown.putExtras(parem);
-							((Activity)context).startActivityForResult(levelDown,1);
-							pause=true;
-						}
-					}
-				}*/
-				/*if(Boxes[mBoxX][mBoxY].isGoal){
-					if(!pause){
-						pause = true;
-						Intent intent = getIntent();
-						setResult(1, intent);
-						finish();
-					}
-				}*/
-			}
-			
-			public void resolveCollisionWithBounds() {				
-				if(!enabled){return;}
-				float w = mazeWidthPixels;
-				float h = mazeHeightPixels;
-				float BoxW = w/CellCountX;
-				float BoxH = h/CellCountY;
-				float maxXPixels,minXPixels,maxYPixels,minYPixels;
-
-				if(!Boxes[mBoxX][mBoxY].hasRight){maxXPixels = (mBoxX+1)*BoxW - w/2-1;}
-				else{maxXPixels = (mBoxX+2)*BoxW - w/2-1;}
-				if(!Boxes[mBoxX][mBoxY].hasLeft){minXPixels = (mBoxX)*BoxW - w/2+1;}
-				else{minXPixels = (mBoxX-1)*BoxW - w/2+1;}
-				if(!Boxes[mBoxX][mBoxY].hasUp){maxYPixels = (mBoxY)*BoxH - h/2+1;}
-				else{maxYPixels = (mBoxY-1)*BoxH - h/2+1;}
-				if(!Boxes[mBoxX][mBoxY].hasDown){minYPixels = (mBoxY+1)*BoxH - h/2+1;}
-				else{minYPixels = (mBoxY+2)*BoxH - h/2+1;}
-
-				float xmax = Math.min(maxXPixels/xs - sBallDiameter/2,mHorizontalBound);
-				float xmin = Math.max(minXPixels/xs + sBallDiameter/2,-mHorizontalBound);
-				float ymax = Math.min(-maxYPixels/ys - sBallDiameter/2,mVerticalBound);
-				float ymin = Math.max(-minYPixels/ys + sBallDiameter/2,-mVerticalBound);
-
-				float x = mPosX;
-				float y = mPosY;
-				mLastPosX=mPosX;
-				mLastPosY=mPosY;
-				//Might switch this back to main edges, or change to allow outside of bounds area.
-				if (x > xmax) {	mPosX = xmax; } 
-				else if (x < xmin) { mPosX = xmin; }
-				if (y > ymax) {	mPosY = ymax; } 
-				else if (y < ymin) { mPosY = ymin; }
-				//Need to figure out which boxes must be passed through and then which borders need to be checked.
-				@SuppressWarnings("unused")
-				int NewXBox = getBoxXFromPixel(xc + x*xs);
-				@SuppressWarnings("unused")
-				int NewYBox = getBoxYFromPixel(yc - y*ys);
-				mLastBoxX = mBoxX;
-				mLastBoxY = mBoxY;
-				mBoxX = getBoxXFromPixel(xc + mPosX*xs);
-				mBoxY = getBoxYFromPixel(yc - mPosY*ys);
-				if(Boxes[mBoxX][mBoxY].isTrap){
-					enabled = false;
-					if(!pause){
-						boolean more = false;
-						for(int i=0;i<NUM_PARTICLES;++i){
-							more|=mBalls[i].enabled;
-							}
-						if(!more){
-							Intent levelDown = new Intent(context, AccelerometerPlayActivity.class);
-							Bundle parem = SetParameters();
-							levelDown.putExtras(parem);
-							((Activity)context).startActivityForResult(levelDown,1);
-							pause=true;
-						}
-					}
-				}
-				if(Boxes[mBoxX][mBoxY].isGoal){
-					if(!pause){
-						pause = true;
-						Intent intent = getIntent();
-						setResult(1, intent);
-						finish();
-					}
-				}
-			}
-		
-			public void resolveCollisionWithBoundsClassic() {
-                final float xmax = mHorizontalBound;
-                final float ymax = mVerticalBound;
-                final float x = mPosX;
-                final float y = mPosY;
-                if (x > xmax) {
-                    mPosX = xmax;
-                } else if (x < -xmax) {
-                    mPosX = -xmax;
-                }
-                if (y > ymax) {
-                    mPosY = ymax;
-                } else if (y < -ymax) {
-                    mPosY = -ymax;
-                }
-            }
+			mSimulationLoop.resetSensorClock();
+			SensorBatching.register(mSensorManager, this, mAccelerometer, mSimulationLoop.getInput().getMode());
+			mSimulationLoop.start();
+			mStarted = true;
+		}
+
+		public void stopSimulation() {
+			mStarted = false;
+			mSensorManager.unregisterListener(this);
+			mSimulationLoop.stop();
 		}
 
 		/*
-		 * A particle system is just a collection of particles
+		 * Swaps newLevel in with every ball at its start, or where they were
+		 * on it if it is coming off above. The simulation, the renderer
+		 * and their buffers stay; the simulation thread is stopped while
+		 * the balls are moved.
 		 */
-		class ParticleSystem {
-			ParticleSystem() {
-				/*
-				 * Initially our particles have no speed or acceleration
-				 */
-				mBalls = new Particle[NUM_PARTICLES];
-				for (int i = 0; i < NUM_PARTICLES; i++) {
-					mBalls[i] = new Particle();
-				}
-			}
+		public void setLevel(Level newLevel, LevelStack above) {
+			mSimulationLoop.stop();
+			mGeometry = newLevel.mGeometry;
+			mMaze = newLevel.mMaze;
+			level = newLevel.level;
+			mParticleSystem.setLevel(mGeometry, mMaze);
+			if (above != null) {above.pop(mBalls);}
+			if (mRecorder != null) {mRecorder.level(level, mGeometry, newLevel.BallSize, mMaze, above != null ? mBalls : null);}
+			releaseBalls();
+			mSimulationLoop.reset();
+			mRenderer.setLevel(mGeometry, mMaze, level, newLevel.mBall);
+			if (mStarted) {mSimulationLoop.start();}
+		}
 
-			/*
-			 * Update the position of each particle in the system using the
-			 * Verlet integrator.
-			 */
-			private void updatePositions(float sx, float sy, long timestamp) {
-				final long t = timestamp;
-				if (mLastT != 0) {
-					final float dT = (float) (t - mLastT) * (1.0f / 1000000000.0f);
-					if (mLastDeltaT != 0) {
-						final float dTC = dT / mLastDeltaT;
-						final int count = mBalls.length;
-						for (int i = 0; i < count && !pause; i++) {
-							if(mBalls[i].enabled){mBalls[i].computePhysics2(sx, sy, dT, dTC);}
-						}
-					}
-					mLastDeltaT = dT;
-				}
-				mLastT = t;
-			}
+		/*
+		 * Clears the traps under the balls and puts every ball back in
+		 * play, for when the level is played again.
+		 */
+		public void releaseBalls() {
+			if (mParticleSystem.release()) {invalidateMazeLayer();}
+		}
 
-			/*
-			 * Performs one iteration of the simulation. First updating the
-			 * position of all the particles and resolving the constraints and
-			 * collisions.
-			 */
-			public void update(float sx, float sy, long now) {
-				// update the system's positions
-				updatePositions(sx, sy, now);
-
-				// We do no more than a limited number of iterations
-				final int NUM_MAX_ITERATIONS = 10;
-
-				/*
-				 * Resolve collisions, each particle is tested against every
-				 * other particle for collision. If a collision is detected the
-				 * particle is moved away using a virtual spring of infinite
-				 * stiffness.
-				 */
-				boolean more = true;
-				final int count = mBalls.length;
-				for (int k = 0; k < NUM_MAX_ITERATIONS && more; k++) {
-					more = false;
-					for (int i = 0; i < count; i++) {
-						Particle curr = mBalls[i];
-						if(curr.enabled){
-							for (int j = i + 1; j < count; j++) {
-								if(mBalls[j].enabled){
-									Particle ball = mBalls[j];
-									if(!ball.enabled){continue;}
-									float dx = ball.mPosX - curr.mPosX;
-									float dy = ball.mPosY - curr.mPosY;
-									float dd = dx * dx + dy * dy;
-									// Check for collisions
-									if (dd <= sBallDiameter2) {
-										/*
-									 	* add a little bit of entropy, after nothing is
-									 	* perfect in the universe.
-									 	*/
-										dx += ((float) Math.random() - 0.5f) * 0.0001f;
-										dy += ((float) Math.random() - 0.5f) * 0.0001f;
-										dd = dx * dx + dy * dy;
-										// simulate the spring
-										final float d = (float) Math.sqrt(dd);
-										final float c = (0.5f * (sBallDiameter - d))
-												/ d;
-										curr.mPosX -= dx * c;
-										curr.mPosY -= dy * c;
-										ball.mPosX += dx * c;
-										ball.mPosY += dy * c;
-										more = true;
-									}
-								}
-							}
-							/*
-							 * Finally make sure the particle doesn't intersects
-							 * with the walls.
-							 */
-							curr.resolveCollisionWithBoundsClassic();
-						}
-					}
-				}
+		/*
+		 * Writes what has been recorded since the activity started over
+		 * the last replay.
+		 */
+		public void saveReplay() {
+			if (mRecorder == null) {return;}
+			mRecorder.checkpoint(mBalls);
+			try {
+				FileOutputStream out = new FileOutputStream(saveFile(REPLAY_FILE));
+				try {mRecorder.writeTo(out);}
+				finally {out.close();}
+			} catch (IOException e) {
+				Toast("Couldn't save the replay: " + e.getMessage());
 			}
+		}
 
-			public int getParticleCount() {return mBalls.length;}
-			public float getPosX(int i) {return mBalls[i].mPosX;}
-			public float getPosY(int i) {return mBalls[i].mPosY;}
-			public int getBoxX(int i) {return mBalls[i].mBoxX;}
-			public int getBoxY(int i) {return mBalls[i].mBoxY;}
+		// the metrics since the activity started, over the last ones
+		public void saveMetrics() {
+			if (mMetrics == null) {return;}
+			try {
+				PrintStream out = new PrintStream(new FileOutputStream(saveFile(METRICS_FILE)));
+				mMetrics.dump(out);
+				out.close();
+				if (out.checkError()) {throw new IOException("write failed");}
+			} catch (IOException e) {
+				Toast("Couldn't save the frame metrics: " + e.getMessage());
+			}
 		}
 
-		public void startSimulation() {
-			/*
-			 * It is not necessary to get accelerometer events at a very high
-			 * rate, by using a slower rate (SENSOR_DELAY_UI), we get an
-			 * automatic low-pass filter, which "extracts" the gravity component
-			 * of the acceleration. As an added benefit, we use less power and
-			 * CPU resources.
-			 */
-			mSensorManager.registerListener(this, mAccelerometer,
-					(SensorManager.SENSOR_DELAY_UI));
+		/*
+		 * name in the app's external files, where adb can pull it from, or
+		 * in its own files if there is no external storage.
+		 */
+		private File saveFile(String name) {
+			File dir = getExternalFilesDir(null);
+			if (dir == null) {dir = getFilesDir();}
+			return new File(dir, name);
 		}
-		public int getBoxXFromMeter(float i) {return (int) (i *xs / (mazeWidthPixels/CellCountX));}
-		public int getBoxYFromMeter(float i) {return (int) (i *ys/ (mazeHeightPixels/CellCountY));}
-		public int getBoxXFromPixel(float i) {return (int) (i / (mazeWidthPixels/CellCountX));}
-		public int getBoxYFromPixel(float i) {return (int) (i / (mazeHeightPixels/CellCountY));}
 
-		public void stopSimulation() {mSensorManager.unregisterListener(this);}
-		public SimulationView(Context context) {
+		public SimulationView(Context context, Level firstLevel) {
 			super(context);
-			metrics = new DisplayMetrics();
-			getWindowManager().getDefaultDisplay().getMetrics(metrics);
-			mXDpi = metrics.xdpi;
-			mYDpi = metrics.ydpi;
-			mMetersToPixelsX = mXDpi / 0.0254f;
-			mMetersToPixelsY = mYDpi / 0.0254f;
 			mAccelerometer = mSensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
 			sFriction = 0.1f;
-			GetParameters();
-			// Create graphics array
-			Boxes = new Box[CellCountX][CellCountY];
-			//Generate Maze
-			GenerateMaze2(CellCountX,CellCountY, TrapCount, Boxes);
-			Options opts = new Options();
-			opts.inDither = true;
-			opts.inPreferredConfig = Bitmap.Config.RGB_565;
-			mWood = BitmapFactory.decodeResource(getResources(),R.drawable.wood, opts);
-			mWood = Bitmap.createScaledBitmap(mWood, (int)mazeWidthPixels,(int)mazeHeightPixels, true);
+			mGeometry = firstLevel.mGeometry;
+			mMaze = firstLevel.mMaze;
+			NUM_PARTICLES = firstLevel.NUM_PARTICLES;
+			level = firstLevel.level;
+			SurfaceRendering = firstLevel.SurfaceRendering;
+
+			mParticleSystem = new ParticleSystem(NUM_PARTICLES, mGeometry, mMaze, sFriction, new Rng(firstLevel.Seed, Rng.BALLS));
+			mParticleSystem.setListener(this);
+			mBalls = mParticleSystem.getParticles();
+			AdaptiveInput input = new AdaptiveInput(firstLevel.TiltTimeConstant, firstLevel.AdaptiveSensorRate);
+			input.setListener(this);
+			mSimulationLoop = new SimulationLoop(mParticleSystem, input, SensorBatching.maxBurst(mAccelerometer));
+			if (firstLevel.RecordReplay) {
+				mRecorder = new ReplayRecorder(firstLevel.Seed, NUM_PARTICLES, sFriction,
+						firstLevel.TiltTimeConstant, ReplayRecorder.DEFAULT_LIMIT);
+				mRecorder.level(level, mGeometry, firstLevel.BallSize, mMaze, null);
+				mSimulationLoop.setRecorder(mRecorder);
+			}
+			mRenderer = new MazeRenderer(mGeometry, mMaze, mSimulationLoop, NUM_PARTICLES, level, firstLevel.mBall, firstLevel.mWood);
+			if (firstLevel.ShowFrameMetrics) {
+				mMetrics = new FrameMetrics();
+				mParticleSystem.setMetrics(mMetrics);
+				mSimulationLoop.setMetrics(mMetrics);
+				mRenderer.setMetrics(mMetrics);
+			}
 		}
 
-		private void GetParameters() {
-			Intent intent = getIntent();
-			Bundle bundle = intent.getExtras();
-			CellCountX = bundle.getInt("CellCountX");
-			CellCountY = bundle.getInt("CellCountY");
-			CellCountX = Math.max(Math.max(CellCountX, 4),CellCountY/2);
-			CellCountY = Math.max(Math.max(CellCountY, 6),CellCountX/2);
-			NUM_PARTICLES = bundle.getInt("NUM_PARTICLES");
-			
-			TrapBoxRatio = bundle.getFloat("TrapBoxRatio");
-			if(TrapBoxRatio==0){TrapCount = 0;}
-			else{TrapCount = (int)(CellCountX*CellCountY/TrapBoxRatio);}
-			DisplayHeight = bundle.getInt("DisplayHeight");
-			AlarmMode = bundle.getBoolean("AlarmMode");
-			level = bundle.getInt("level");
-			
-			mazeHeightPixels = metrics.heightPixels - DisplayHeight;
-			mazeWidthPixels = metrics.widthPixels;
-			
-			AutomaticBorders = bundle.getBoolean("AutomaticBorders");
-			if(AutomaticBorders){
-				wallWidth = (int)(mazeWidthPixels/(10*CellCountX));
-				wallHeight = (int)(mazeHeightPixels/(10*CellCountY));
-			}else{
-				wallWidth = bundle.getInt("wallWidth");
-				wallHeight = bundle.getInt("wallHeight");
-			}
-			boxHeight = ((mazeHeightPixels-wallHeight) / CellCountY)-wallHeight;
-			boxWidth = (mazeWidthPixels - wallWidth) / CellCountX - wallWidth;
-			BallSize = bundle.getFloat("BallSize");
-			sBallDiameter = Math.min(boxHeight/mMetersToPixelsY,boxWidth/mMetersToPixelsX)*BallSize;
-			sBallDiameter2 = sBallDiameter * sBallDiameter;
-			
-			lineUp = new Paint();
-			lineUp.setColor(Color.YELLOW);
-			lineUp.setStrokeWidth(wallWidth);
-			lineAcross = new Paint();
-			lineAcross.setColor(Color.YELLOW);
-			lineAcross.setStrokeWidth(wallHeight);
-			TrapPaint = new Paint();
-			TrapPaint.setColor(Color.BLACK);
-			
-			int ballHeight = (int) (sBallDiameter * mMetersToPixelsY + .5f);
-			int ballWidth = (int) (sBallDiameter * mMetersToPixelsX + .5f);
-			// rescale the ball so it's about 0.5 cm on screen
-			Bitmap ball = BitmapFactory.decodeResource(getResources(),R.drawable.ball);
-			mBitmap = Bitmap.createScaledBitmap(ball, ballWidth, ballHeight,true);
-			
-			mXOrigin = (mazeWidthPixels - mBitmap.getWidth()) * 0.5f;
-			mYOrigin = (mazeHeightPixels - mBitmap.getHeight()) * 0.5f;
-			mHorizontalBound = (((mazeWidthPixels-2*wallWidth)/ mMetersToPixelsX - sBallDiameter) * 0.5f);
-			mVerticalBound = (((mazeHeightPixels-2*wallHeight) / mMetersToPixelsY - sBallDiameter) * 0.5f);
-			xc = mXOrigin;
-			yc = mYOrigin;
-			xs = mMetersToPixelsX;
-			ys = mMetersToPixelsY;
-			
-			mParticleSystem = new ParticleSystem();
+		/*
+		 * Level changes come from the simulation thread, levels are
+		 * swapped and the activity finished from the UI thread.
+		 */
+		public void onAllTrapped() {
+			runOnUiThread(new Runnable() {
+				public void run() {fallDown();}
+			});
+		}
+
+		public void onGoalReached() {
+			runOnUiThread(new Runnable() {
+				public void run() {riseUp();}
+			});
 		}
-		private Bundle SetParameters() {
-			Bundle parem = new Bundle();
-			parem.putInt("CellCountY", (int)(CellCountY/1.4));
-			parem.putInt("CellCountX", (int)(CellCountX/1.4));
-			parem.putInt("NUM_PARTICLES",NUM_PARTICLES);
-			parem.putFloat("BallSize", BallSize);
-			parem.putFloat("TrapBoxRatio", TrapBoxRatio);
-			parem.putBoolean("AlarmMode", AlarmMode);
-			parem.putBoolean("AutomaticBorders", AutomaticBorders);
-			parem.putInt("level",level+1);
-			parem.putInt("DisplayHeight", DisplayHeight);
-			parem.putInt("wallHeight",wallHeight);
-			parem.putInt("wallWidth",wallWidth);
-			return parem;
+
+		// registers again at the new mode's rate, unless stopped meanwhile
+		public void onInputModeChanged(final int mode) {
+			runOnUiThread(new Runnable() {
+				public void run() {
+					if (!mStarted) {return;}
+					mSensorManager.unregisterListener(SimulationView.this);
+					SensorBatching.register(mSensorManager, SimulationView.this, mAccelerometer, mode);
+				}
+			});
 		}
 
 		@Override
@@ -679,258 +369,57 @@ public class AccelerometerPlayActivity extends Activity {
 			if (event.sensor.getType() != Sensor.TYPE_ACCELEROMETER)
 				return;
 			/*
-			 * record the accelerometer data, the event's timestamp as well as
-			 * the current time. The latter is needed so we can calculate the
-			 * "present" time during rendering. In this application, we need to
+			 * queue the accelerometer data with the event's timestamp, the
+			 * simulation thread applies every sample at the time it was
+			 * measured. In this application, we need to
 			 * take into account how the screen is rotated with respect to the
 			 * sensors (which always return data in a coordinate space aligned
 			 * to with the screen in its native orientation).
 			 */
-
+			float sx = 0;
+			float sy = 0;
 			switch (mDisplay.getRotation()) {
 			case Surface.ROTATION_0:
-				mSensorX = event.values[0];
-				mSensorY = event.values[1];
+				sx = event.values[0];
+				sy = event.values[1];
 				break;
 			case Surface.ROTATION_90:
-				mSensorX = -event.values[1];
-				mSensorY = event.values[0];
+				sx = -event.values[1];
+				sy = event.values[0];
 				break;
 			case Surface.ROTATION_180:
-				mSensorX = -event.values[0];
-				mSensorY = -event.values[1];
+				sx = -event.values[0];
+				sy = -event.values[1];
 				break;
 			case Surface.ROTATION_270:
-				mSensorX = event.values[1];
-				mSensorY = -event.values[0];
+				sx = event.values[1];
+				sy = -event.values[0];
 				break;
 			}
-
-			mSensorTimeStamp = event.timestamp;
-			mCpuTimeStamp = System.nanoTime();
+			mSimulationLoop.addSample(event.timestamp, sx, sy);
 		}
 
 		@Override
 		protected void onDraw(Canvas canvas) {
-			/*
-			 * draw the background
-			 */
-
-			canvas.drawBitmap(mWood, 0, 0, null);
-
-			// Draw Walls
-			float boxWidth = this.boxWidth;
-			float boxHeight = this.boxHeight;
-			for (int i = 0; i < Boxes.length; i++) {
-				for (int j = 0; j < Boxes[0].length; j++) {
-					if (!Boxes[i][j].hasDown)
-					{
-						canvas.drawLine(
-							(boxWidth+wallWidth)*i,								(boxHeight+wallHeight)*(j+1)+wallHeight/2,
-							(boxWidth+wallWidth)*(i+1)+wallWidth-1f,			(boxHeight+wallHeight)*(j+1)+wallHeight/2,lineAcross
-								);
-					}
-					if (!Boxes[i][j].hasRight){
-						canvas.drawLine(
-							(boxWidth+wallWidth)*(i+1)+wallWidth/2,				(boxHeight+wallHeight)*j,
-							(boxWidth+wallWidth)*(i+1)+wallWidth/2,				(boxHeight+wallHeight)*(j+1)+wallHeight-1f,lineUp
-							);
-					}
-					//Traps!
-					if(Boxes[i][j].isTrap){
-						canvas.drawCircle(i*(wallWidth+boxWidth)+wallWidth + boxWidth/2, j*(wallHeight+boxHeight)+wallHeight+boxHeight/2, Math.min(boxWidth/2,boxHeight/2), TrapPaint);
-					}
-				}
-			}
-			// Draw Borders
-			canvas.drawLine(0, wallHeight/2, mazeWidthPixels, wallHeight/2, lineAcross);
-			canvas.drawLine(wallWidth/2, 0, wallWidth/2, mazeHeightPixels, lineUp);
-
-			//Start and end text.
-			canvas.drawText("START", boxWidth/2, boxHeight/2, lineUp);
-			canvas.drawText("END!!", mazeWidthPixels-boxWidth/2, mazeHeightPixels-boxHeight/2, lineUp);
-
-			/*
-			 * compute the new position of our object, based on accelerometer
-			 * data and present time.
-			 */
-
-			final ParticleSystem particleSystem = mParticleSystem;
-			final long now = mSensorTimeStamp
-					+ (System.nanoTime() - mCpuTimeStamp);
-			final float sx = mSensorX;
-			final float sy = mSensorY;
-
-			particleSystem.update(sx, sy, now);
-
-			final Bitmap bitmap = mBitmap;
-			for (int i = 0; i < NUM_PARTICLES; i++) {
-				/*
-				 * We transform the canvas so that the coordinate system matches
-				 * the sensors coordinate system with the origin in the center
-				 * of the screen and the unit is the meter.
-				 */
-				float x = 0;
-				float y = 0;
-				if(mBalls[i].enabled){
-					x = xc + particleSystem.getPosX(i) * xs;
-					y = yc - particleSystem.getPosY(i) * ys;
-					canvas.drawBitmap(bitmap, x, y, null);
-				}
-				String s = "";
-				s += "Level "+((Integer)level).toString()+" ";
-				s += "("
-					+ ((Integer)((Float)x).intValue()).toString()+ ","
-					+ ((Integer)((Float)y).intValue()).toString() + ") ("
-					+ ((Integer) particleSystem.getBoxX(i)).toString()+ ","
-					+ ((Integer) particleSystem.getBoxY(i)).toString()+ ")";
-				canvas.drawText(s, 0, mazeHeightPixels+13, lineUp);
-
-			}
-
+			mRenderer.draw(canvas);
 			// and make sure to redraw asap
 			invalidate();
 		}
-		
-		public void GenerateMaze2(int CellCountX, int CellCountY, int TrapCount, Box[][] Boxes ) {
-			boolean valid;
-			do{
-				valid = false;
-				for (int i = 0; i < CellCountX; i++) {
-					for (int j = 0; j < CellCountY; j++) {
-						Boxes[i][j]=new Box(i,j);
-					}
-				}
-				for(int i = 0; i<CellCountX;++i){
-					for(int j=0;j<CellCountY;++j){
-						if(i!=CellCountX-1){Boxes[i][j].Right = Boxes[i+1][j]; Boxes[i+1][j].Left = Boxes[i][j];}
-						if(j!=CellCountY-1){Boxes[i][j].Down = Boxes[i][j+1]; Boxes[i][j+1].Up = Boxes[i][j];}
-					}
-				}
-				Boxes[CellCountX-1][CellCountY-1].isGoal = true;
-				for(int i = 0; i < TrapCount; ++i){
-					boolean again;
-					do{
-						int x = (int)(Math.random()*CellCountX);
-						int y = (int)(Math.random()*CellCountY);
-						again = (x==0&&y==0)||
-								(x == CellCountX-1 && y == CellCountY-1) && !Boxes[x][y].isTrap ||
-								(x>0 && Boxes[x-1][y].isTrap) ||
-								(x<CellCountX-1 && Boxes[x+1][y].isTrap) ||
-								(y>0 && Boxes[x][y-1].isTrap) ||
-								(y<CellCountY-1 && Boxes[x][y+1].isTrap);
-						if (!again){
-							Boxes[x][y].isTrap=true;
-							if(x>0){
-								Boxes[x][y].addNeighbor(Boxes[x-1][y]);
-								Boxes[x-1][y].addNeighbor(Boxes[x][y]);
-							}if(x<CellCountX-1){
-								Boxes[x][y].addNeighbor(Boxes[x+1][y]);
-								Boxes[x+1][y].addNeighbor(Boxes[x][y]);
-							}if(y>0){
-								Boxes[x][y].addNeighbor(Boxes[x][y-1]);
-								Boxes[x][y-1].addNeighbor(Boxes[x][y]);
-							}if(y<CellCountY-1){
-								Boxes[x][y].addNeighbor(Boxes[x][y+1]);
-								Boxes[x][y+1].addNeighbor(Boxes[x][y]);
-							}
-						}
-					} while(again);
-				}
-				List<Box> Nodes = new ArrayList<Box>();
-				Nodes.add(Boxes[0][0]);
-				Boxes[0][0].visited = true;
-				while (!Nodes.isEmpty()){
-					int i = (int)(Math.random()*Nodes.size());
-					Box Node = Nodes.get(i);
-					Box NextNode = Node.getRandomUnvisitedNeighbor(CellCountX,CellCountY);
-					if(NextNode.x==-1){
-						Nodes.remove(i);
-					}else{
-						NextNode.visited = true;
-						valid |= NextNode.isGoal;
-						Node.addNeighbor(NextNode);
-						NextNode.addNeighbor(Node);
-						Nodes.add(NextNode);
-					}
-				}
-			}while(!valid);
+
+		/*
+		 * Has the maze layer redrawn before the next frame, for when a trap
+		 * or wall changes.
+		 */
+		public void invalidateMazeLayer() {
+			mRenderer.invalidateMazeLayer();
 		}
+
 		@Override
 		public void onAccuracyChanged(Sensor sensor, int accuracy) {}
 	}
 
-	public class Box{
-		public boolean visited;
-		public boolean isGoal;
-		public boolean hasLeft;
-		public boolean hasRight;
-		public boolean hasUp;
-		public boolean hasDown;
-		public boolean isTrap;
-		public float TrapRadius;
-		public Box Left;
-		public Box Right;
-		public Box Up;
-		public Box Down;
-		public int numNeighbors;
-		int x,y;
-
-		public Box(int i, int j){
-			visited = false;
-			isGoal = false;
-			isTrap=false;
-			x=i;
-			y=j;
-		}
-		public void addLeftNeighbor(Box i){
-			Left = i;
-			hasLeft = (i!=null);
-		}
-		public void addRightNeighbor(Box i){
-			Right = i;
-			hasRight = (i!=null);
-		}
-		public void addUpNeighbor(Box i){
-			Up = i;
-			hasUp = (i!=null);
-		}
-		public void addDownNeighbor(Box i){
-			Down = i;
-			hasDown = (i!=null);
-		}
-		public void addNeighbor(Box i){//Please don't pass incorrect boxes.
-			if(x>i.x){addLeftNeighbor(i);}
-			else if(x<i.x){addRightNeighbor(i);
-			}else if (y<i.y){addDownNeighbor(i);}
-			else{addUpNeighbor(i);}
-		}
-		public boolean Validate() {
-			visited = true;
-			return !isTrap && 
-					(isGoal || 
-					(hasLeft && !Left.visited && !Left.isTrap && Left.Validate()) || 
-					(hasRight && !Right.visited && !Right.isTrap && Right.Validate())||
-					(hasUp && !Up.visited && !Up.isTrap && Up.Validate()) ||
-					(hasDown && !Down.visited && !Down.isTrap && Down.Validate()));		
-		}
-		public Box getRandomUnvisitedNeighbor(int CellCountX, int CellCountY){
-			int count = 0;
-			Box[] Neighbors = new Box[4];
-			if(!hasLeft && x>0 &&!Left.visited && !Left.isTrap){
-				Neighbors[count++] = Left;}
-			if(!hasRight && x<CellCountX-1 && !Right.visited && !Right.isTrap){
-				Neighbors[count++] = Right;}
-			if(!hasUp && y>0 && !Up.visited && !Up.isTrap){
-				Neighbors[count++] = Up;}
-			if(!hasDown && y<CellCountY-1 && !Down.visited && !Down.isTrap){
-				Neighbors[count++] = Down;}
-			if(count==0){Neighbors[0] = new Box(-1,-1);}
-			return Neighbors[(int)(Math.random()*count)];
-		}
-	}
 	public void Toast(String s){
 		Toast toast = Toast.makeText(context, s, s.length());
 		toast.show();
 	}
-}
\ No newline at end of file
+}
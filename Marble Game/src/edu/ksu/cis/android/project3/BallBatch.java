@@ -0,0 +1,90 @@
+package edu.ksu.cis.android.project3;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/*
+ * Draws every ball sprite in one Canvas.drawVertices call instead of one
+ * drawBitmap per ball. Each ball is a quad of two triangles textured with
+ * the ball bitmap through a BitmapShader. The vertex, texture and index
+ * arrays are sized for every ball up front and reused each frame; only
+ * the positions of the balls in play are rewritten.
+ *
+ * drawVertices is only drawn by the software renderer. The manifest does
+ * not turn on hardware acceleration and SurfaceView canvases are always
+ * software, so both backends can use it.
+ */
+public class BallBatch {
+	private final float[] mVerts;
+	private final float[] mTexs;
+	private final short[] mIndices;
+	private final Paint mPaint;
+	private final int mCapacity;
+	private float mWidth;
+	private float mHeight;
+	private int mCount;
+
+	public BallBatch(Bitmap ball, int capacity) {
+		// 4 corners per ball, indices are shorts
+		if (capacity > Short.MAX_VALUE / 4) {
+			throw new IllegalArgumentException("too many balls for one batch: " + capacity);
+		}
+		mCapacity = capacity;
+		mVerts = new float[capacity * 8];
+		mTexs = new float[capacity * 8];
+		mIndices = new short[capacity * 6];
+		for (int i = 0; i < capacity; i++) {
+			final int n = i * 6;
+			final short v = (short) (i * 4);
+			mIndices[n] = v;
+			mIndices[n + 1] = (short) (v + 1);
+			mIndices[n + 2] = (short) (v + 2);
+			mIndices[n + 3] = v;
+			mIndices[n + 4] = (short) (v + 2);
+			mIndices[n + 5] = (short) (v + 3);
+		}
+		mPaint = new Paint();
+		setBitmap(ball);
+	}
+
+	// draws the balls with a different bitmap from the next begin on
+	public void setBitmap(Bitmap ball) {
+		mWidth = ball.getWidth();
+		mHeight = ball.getHeight();
+		for (int i = 0; i < mCapacity; i++) {
+			final int t = i * 8;
+			// top left, top right, bottom right, bottom left, in bitmap pixels
+			mTexs[t] = 0;			mTexs[t + 1] = 0;
+			mTexs[t + 2] = mWidth;	mTexs[t + 3] = 0;
+			mTexs[t + 4] = mWidth;	mTexs[t + 5] = mHeight;
+			mTexs[t + 6] = 0;		mTexs[t + 7] = mHeight;
+		}
+		mPaint.setShader(new BitmapShader(ball, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+	}
+
+	public void begin() {mCount = 0;}
+
+	/*
+	 * Queues a ball with its top left corner at (x, y), like
+	 * drawBitmap(ball, x, y, null) would draw it.
+	 */
+	public void add(float x, float y) {
+		final float[] v = mVerts;
+		final int t = mCount++ * 8;
+		final float r = x + mWidth;
+		final float b = y + mHeight;
+		v[t] = x;		v[t + 1] = y;
+		v[t + 2] = r;	v[t + 3] = y;
+		v[t + 4] = r;	v[t + 5] = b;
+		v[t + 6] = x;	v[t + 7] = b;
+	}
+
+	public void draw(Canvas canvas) {
+		if (mCount == 0) {return;}
+		canvas.drawVertices(Canvas.VertexMode.TRIANGLES, mCount * 8, mVerts, 0,
+				mTexs, 0, null, 0, mIndices, 0, mCount * 6, mPaint);
+	}
+}
@@ -0,0 +1,118 @@
+package edu.ksu.cis.android.project3;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapFactory.Options;
+
+/*
+ * Decoded and scaled resource bitmaps, shared by every level for as long
+ * as the process lives. Keyed by resource, size and config; a size of 0 by
+ * 0 is the resource as decoded. The least recently used bitmaps are let go
+ * once the total passes a budget of an eighth of the heap. They are never
+ * recycled here, since a level being played may still be drawing one.
+ * createScaledBitmap hands back the bitmap it was given when the size
+ * doesn't change, so one bitmap can be under two keys; it counts towards
+ * the total once.
+ *
+ * Decoding and scaling happen outside the lock, so two threads missing the
+ * same bitmap at once may both make it; the second one is kept.
+ */
+public class BitmapCache {
+	private static final long BUDGET = Runtime.getRuntime().maxMemory() / 8;
+
+	private static final class Key {
+		final int id;
+		final int width;
+		final int height;
+		final Bitmap.Config config;
+
+		Key(int id, int width, int height, Bitmap.Config config) {
+			this.id = id;
+			this.width = width;
+			this.height = height;
+			this.config = config;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {return false;}
+			Key k = (Key) o;
+			return id == k.id && width == k.width && height == k.height && config == k.config;
+		}
+
+		@Override
+		public int hashCode() {return ((id * 31 + width) * 31 + height) * 31 + config.ordinal();}
+	}
+
+	// in access order, least recently used first
+	private static final LinkedHashMap<Key, Bitmap> sBitmaps = new LinkedHashMap<Key, Bitmap>(16, 0.75f, true);
+	// how many keys each bitmap is under, the total counts each bitmap once
+	private static final IdentityHashMap<Bitmap, Integer> sKeys = new IdentityHashMap<Bitmap, Integer>();
+	private static long sBytes;
+
+	/*
+	 * Resource id decoded with config and scaled to width by height, from
+	 * the cache if it is there.
+	 */
+	public static Bitmap get(Resources resources, int id, int width, int height, Bitmap.Config config) {
+		final Key key = new Key(id, width, height, config);
+		Bitmap bitmap = lookup(key);
+		if (bitmap != null) {return bitmap;}
+		Bitmap decoded = get(resources, id, config);
+		bitmap = Bitmap.createScaledBitmap(decoded, width, height, true);
+		put(key, bitmap);
+		return bitmap;
+	}
+
+	// resource id decoded with config, unscaled
+	public static Bitmap get(Resources resources, int id, Bitmap.Config config) {
+		final Key key = new Key(id, 0, 0, config);
+		Bitmap bitmap = lookup(key);
+		if (bitmap != null) {return bitmap;}
+		Options opts = new Options();
+		opts.inDither = config == Bitmap.Config.RGB_565;
+		opts.inPreferredConfig = config;
+		bitmap = BitmapFactory.decodeResource(resources, id, opts);
+		put(key, bitmap);
+		return bitmap;
+	}
+
+	private static synchronized Bitmap lookup(Key key) {return sBitmaps.get(key);}
+
+	private static synchronized void put(Key key, Bitmap bitmap) {
+		final Bitmap old = sBitmaps.put(key, bitmap);
+		retain(bitmap);
+		if (old != null) {release(old);}
+		// let go of the least recently used, never the one just put in
+		Iterator<Map.Entry<Key, Bitmap>> it = sBitmaps.entrySet().iterator();
+		while (sBytes > BUDGET && sBitmaps.size() > 1) {
+			Map.Entry<Key, Bitmap> eldest = it.next();
+			release(eldest.getValue());
+			it.remove();
+		}
+	}
+
+	private static void retain(Bitmap bitmap) {
+		final Integer keys = sKeys.get(bitmap);
+		if (keys == null) {sBytes += bytes(bitmap);}
+		sKeys.put(bitmap, keys == null ? 1 : keys + 1);
+	}
+
+	private static void release(Bitmap bitmap) {
+		final int keys = sKeys.get(bitmap);
+		if (keys > 1) {sKeys.put(bitmap, keys - 1);}
+		else {
+			sKeys.remove(bitmap);
+			sBytes -= bytes(bitmap);
+		}
+	}
+
+	// getByteCount is API 12
+	private static long bytes(Bitmap bitmap) {return (long) bitmap.getRowBytes() * bitmap.getHeight();}
+}
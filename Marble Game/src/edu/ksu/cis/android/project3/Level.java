@@ -0,0 +1,127 @@
+package edu.ksu.cis.android.project3;
+
+import edu.ksu.cis.android.project3.R;
+import edu.ksu.cis.android.project3.core.AdaptiveInput;
+import edu.ksu.cis.android.project3.core.Maze;
+import edu.ksu.cis.android.project3.core.MazeAlgorithm;
+import edu.ksu.cis.android.project3.core.MazeGeometry;
+import edu.ksu.cis.android.project3.core.Rng;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.util.DisplayMetrics;
+
+/*
+ * Everything a level is built from: the settings it was started with, its
+ * maze, where the maze goes on screen and the wood and ball bitmaps scaled
+ * to fit. Building one touches no views, so it can be done on any thread.
+ * The bitmaps come from BitmapCache, so a level whose sizes were seen
+ * before, like the wood which fills the screen at every level, doesn't
+ * decode or scale anything.
+ */
+public class Level {
+	public final int CellCountX;
+	public final int CellCountY;
+	public final int NUM_PARTICLES;
+	public final float TrapBoxRatio;
+	public final int TrapCount;
+	public final float BallSize;
+	public final int DisplayHeight;
+	public final int wallWidth;
+	public final int wallHeight;
+	public final int level;
+	public final boolean AlarmMode;
+	public final boolean AutomaticBorders;
+	public final boolean SurfaceRendering;
+	public final boolean AdaptiveSensorRate;
+	// seconds, 0 for an unfiltered tilt
+	public final float TiltTimeConstant;
+	// whether the play is recorded for ReplayPlayer
+	public final boolean RecordReplay;
+	// whether step and frame timings are recorded, shown and saved
+	public final boolean ShowFrameMetrics;
+	public final MazeAlgorithm Algorithm;
+	public final long Seed;
+	public final Bundle mParameters;
+	public final MazeGeometry mGeometry;
+	public final Maze mMaze;
+	public final Bitmap mBall;
+	public final Bitmap mWood;
+
+	public Level(Resources resources, DisplayMetrics metrics, Bundle bundle) {
+		this(resources, metrics, bundle, null);
+	}
+
+	// a level with maze instead of a new one from its seed, if it isn't null
+	public Level(Resources resources, DisplayMetrics metrics, Bundle bundle, Maze maze) {
+		mParameters = bundle;
+		int CellCountX = bundle.getInt("CellCountX");
+		int CellCountY = bundle.getInt("CellCountY");
+		CellCountX = Math.max(Math.max(CellCountX, 4),CellCountY/2);
+		CellCountY = Math.max(Math.max(CellCountY, 6),CellCountX/2);
+		this.CellCountX = CellCountX;
+		this.CellCountY = CellCountY;
+		NUM_PARTICLES = bundle.getInt("NUM_PARTICLES");
+
+		TrapBoxRatio = bundle.getFloat("TrapBoxRatio");
+		if(TrapBoxRatio==0){TrapCount = 0;}
+		else{TrapCount = (int)(CellCountX*CellCountY/TrapBoxRatio);}
+		DisplayHeight = bundle.getInt("DisplayHeight");
+		AlarmMode = bundle.getBoolean("AlarmMode");
+		SurfaceRendering = bundle.getBoolean("SurfaceRendering");
+		AdaptiveSensorRate = bundle.getBoolean("AdaptiveSensorRate", true);
+		TiltTimeConstant = bundle.getFloat("TiltTimeConstant", AdaptiveInput.DEFAULT_TIME_CONSTANT);
+		RecordReplay = bundle.getBoolean("RecordReplay");
+		ShowFrameMetrics = bundle.getBoolean("ShowFrameMetrics");
+		Algorithm = MazeAlgorithm.fromName(bundle.getString("MazeAlgorithm"));
+		Seed = bundle.getLong("Seed");
+		level = bundle.getInt("level");
+
+		float mazeHeightPixels = metrics.heightPixels - DisplayHeight;
+		float mazeWidthPixels = metrics.widthPixels;
+
+		AutomaticBorders = bundle.getBoolean("AutomaticBorders");
+		if(AutomaticBorders){
+			wallWidth = (int)(mazeWidthPixels/(10*CellCountX));
+			wallHeight = (int)(mazeHeightPixels/(10*CellCountY));
+		}else{
+			wallWidth = bundle.getInt("wallWidth");
+			wallHeight = bundle.getInt("wallHeight");
+		}
+		BallSize = bundle.getFloat("BallSize");
+		mGeometry = new MazeGeometry(CellCountX, CellCountY, mazeWidthPixels, mazeHeightPixels,
+				wallWidth, wallHeight, metrics.xdpi / 0.0254f, metrics.ydpi / 0.0254f, BallSize);
+
+		if (maze != null) {mMaze = maze;}
+		else {mMaze = new Maze(CellCountX, CellCountY, TrapCount, Algorithm.generator, Seed);}
+
+		// rescale the ball so it's about 0.5 cm on screen
+		mBall = BitmapCache.get(resources, R.drawable.ball, mGeometry.ballWidth, mGeometry.ballHeight, Bitmap.Config.ARGB_8888);
+		mWood = BitmapCache.get(resources, R.drawable.wood, (int)mazeWidthPixels, (int)mazeHeightPixels, Bitmap.Config.RGB_565);
+	}
+
+	// the settings for the level below this one, a smaller maze
+	public Bundle next() {
+		Bundle parem = new Bundle();
+		parem.putInt("CellCountY", (int)(CellCountY/1.4));
+		parem.putInt("CellCountX", (int)(CellCountX/1.4));
+		parem.putInt("NUM_PARTICLES",NUM_PARTICLES);
+		parem.putFloat("BallSize", BallSize);
+		parem.putFloat("TrapBoxRatio", TrapBoxRatio);
+		parem.putBoolean("AlarmMode", AlarmMode);
+		parem.putBoolean("AutomaticBorders", AutomaticBorders);
+		parem.putBoolean("SurfaceRendering", SurfaceRendering);
+		parem.putBoolean("AdaptiveSensorRate", AdaptiveSensorRate);
+		parem.putFloat("TiltTimeConstant", TiltTimeConstant);
+		parem.putBoolean("RecordReplay", RecordReplay);
+		parem.putBoolean("ShowFrameMetrics", ShowFrameMetrics);
+		parem.putString("MazeAlgorithm", Algorithm.name());
+		// the next level's seed follows from this one, so a seed replays a whole run
+		parem.putLong("Seed", new Rng(Seed, Rng.NEXT_LEVEL).nextLong());
+		parem.putInt("level",level+1);
+		parem.putInt("DisplayHeight", DisplayHeight);
+		parem.putInt("wallHeight",wallHeight);
+		parem.putInt("wallWidth",wallWidth);
+		return parem;
+	}
+}
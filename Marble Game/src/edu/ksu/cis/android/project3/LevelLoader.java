@@ -0,0 +1,96 @@
+package edu.ksu.cis.android.project3;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.os.Process;
+import android.util.DisplayMetrics;
+
+/*
+ * Builds the level below the one being played on a background thread, so
+ * falling into it doesn't wait on maze generation and bitmap decoding.
+ * One level is kept ready at a time. Its settings get a "LevelTicket"
+ * added, and take gives back the level built for that ticket, or builds
+ * the level then and there if there is none.
+ */
+public class LevelLoader {
+	private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					// stay out of the way of the simulation and the frames
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					r.run();
+				}
+			}, "LevelLoader");
+			// never keeps the process alive
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private static int sTicket;
+	private static int sPendingTicket;
+	private static Future<Level> sPending;
+
+	/*
+	 * Starts building the level for parameters in place of any not taken
+	 * yet, and marks parameters with the ticket to take it by.
+	 */
+	public static synchronized void preload(final Resources resources, final DisplayMetrics metrics, final Bundle parameters) {
+		discard();
+		sPendingTicket = ++sTicket;
+		parameters.putInt("LevelTicket", sPendingTicket);
+		sPending = sExecutor.submit(new Callable<Level>() {
+			public Level call() {return new Level(resources, metrics, parameters);}
+		});
+	}
+
+	/*
+	 * The level for parameters: the one preloaded for its ticket, waiting
+	 * for it to finish if it hasn't, or else a new one.
+	 */
+	public static Level take(Resources resources, DisplayMetrics metrics, Bundle parameters) {
+		Future<Level> pending = null;
+		synchronized (LevelLoader.class) {
+			if (sPending != null && parameters.getInt("LevelTicket") == sPendingTicket) {
+				pending = sPending;
+				sPending = null;
+			}
+		}
+		if (pending != null) {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return pending.get();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} catch (ExecutionException e) {
+				// build it here instead, where whatever went wrong can be seen
+			} finally {
+				if (interrupted) {Thread.currentThread().interrupt();}
+			}
+		}
+		return new Level(resources, metrics, parameters);
+	}
+
+	// drops the level kept ready for ticket, for when nothing will take it
+	public static synchronized void discard(int ticket) {
+		if (ticket == sPendingTicket) {discard();}
+	}
+
+	private static void discard() {
+		if (sPending != null) {
+			sPending.cancel(false);
+			sPending = null;
+		}
+	}
+}
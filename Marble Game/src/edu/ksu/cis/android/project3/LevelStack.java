@@ -0,0 +1,53 @@
+package edu.ksu.cis.android.project3;
+
+import java.util.ArrayList;
+
+import edu.ksu.cis.android.project3.core.Maze;
+import edu.ksu.cis.android.project3.core.ParticleStore;
+import android.os.Bundle;
+
+/*
+ * The levels above the one being played, each kept as only what it takes
+ * to climb back up to it: its settings, its maze with whatever traps have
+ * been cleared, and where the balls were caught. The bitmaps, the views
+ * and the simulation's buffers all belong to the level being played, so
+ * falling further down doesn't take any more of them.
+ */
+public class LevelStack {
+	private static class Entry {
+		final Bundle parameters;
+		final Maze maze;
+		final float[] x;
+		final float[] y;
+
+		Entry(Bundle parameters, Maze maze, ParticleStore balls) {
+			this.parameters = parameters;
+			this.maze = maze;
+			x = new float[balls.count];
+			y = new float[balls.count];
+			System.arraycopy(balls.mPosX, 0, x, 0, x.length);
+			System.arraycopy(balls.mPosY, 0, y, 0, y.length);
+		}
+	}
+
+	private final ArrayList<Entry> mEntries = new ArrayList<Entry>();
+
+	public boolean isEmpty() {return mEntries.isEmpty();}
+
+	// keeps level, with the balls where they are now, before falling out of it
+	public void push(Level level, ParticleStore balls) {
+		mEntries.add(new Entry(level.mParameters, level.mMaze, balls));
+	}
+
+	public Bundle peekParameters() {return mEntries.get(mEntries.size() - 1).parameters;}
+	public Maze peekMaze() {return mEntries.get(mEntries.size() - 1).maze;}
+
+	/*
+	 * Takes the top level off, putting the balls back at rest where they
+	 * were in it. balls must already be on that level's maze.
+	 */
+	public void pop(ParticleStore balls) {
+		final Entry entry = mEntries.remove(mEntries.size() - 1);
+		for (int i = 0; i < balls.count; i++) {balls.place(i, entry.x[i], entry.y[i]);}
+	}
+}
@@ -1,6 +1,10 @@
 package edu.ksu.cis.android.project3;
 
+import java.util.Random;
+
 import edu.ksu.cis.android.project3.R;
+import edu.ksu.cis.android.project3.core.AdaptiveInput;
+import edu.ksu.cis.android.project3.core.MazeAlgorithm;
 
 import android.os.Bundle;
 import android.app.Activity;
@@ -12,6 +16,7 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import android.widget.Button;
 import android.widget.CheckBox;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -28,6 +33,13 @@ public class MainActivity extends Activity {
 	TextView textWallHeight;
 	CheckBox checkAlarmMode;
 	CheckBox checkAutomaticBorders;
+	CheckBox checkSurfaceRendering;
+	CheckBox checkAdaptiveInput;
+	CheckBox checkRecordReplay;
+	CheckBox checkFrameMetrics;
+	Spinner spinnerAlgorithm;
+	TextView textSeed;
+	TextView textTiltTimeConstant;
 	private int width;
 	private int height;
 	public int maxCellsX;
@@ -52,6 +64,13 @@ public class MainActivity extends Activity {
 		textWallHeight = (TextView) findViewById(R.id.editText8);
 		checkAlarmMode = (CheckBox) findViewById(R.id.checkBox1);
 		checkAutomaticBorders = (CheckBox) findViewById(R.id.checkBox2);
+		checkSurfaceRendering = (CheckBox) findViewById(R.id.checkBox3);
+		checkAdaptiveInput = (CheckBox) findViewById(R.id.checkBox4);
+		checkRecordReplay = (CheckBox) findViewById(R.id.checkBox5);
+		checkFrameMetrics = (CheckBox) findViewById(R.id.checkBox6);
+		spinnerAlgorithm = (Spinner) findViewById(R.id.spinner1);
+		textSeed = (TextView) findViewById(R.id.editText9);
+		textTiltTimeConstant = (TextView) findViewById(R.id.editText10);
 		Button button = (Button) findViewById(R.id.button1);
 		button.setOnClickListener(new OnClickListener() {	
 		public void onClick(View arg0){
@@ -71,7 +90,8 @@ public class MainActivity extends Activity {
 	public Bundle setParameters(){
 		Bundle parem = new Bundle();
 		int CellCountX,CellCountY,NUM_PARTICLES,DisplayHeight,wallWidth, wallHeight;
-		float TrapBoxRatio,BallSize;
+		float TrapBoxRatio,BallSize,TiltTimeConstant;
+		long Seed;
 		try{CellCountX = Integer.parseInt(textRows.getText().toString());}
 		catch (Exception e){CellCountX = 15;}
 		
@@ -96,6 +116,13 @@ public class MainActivity extends Activity {
 		try{wallHeight = Integer.parseInt((textWallHeight).getText().toString());}
 		catch(Exception e){wallHeight = 3;}
 		
+		// left blank for a new maze every time
+		try{Seed = Long.parseLong(textSeed.getText().toString());}
+		catch(Exception e){Seed = new Random().nextLong();}
+		
+		try{TiltTimeConstant = Float.parseFloat(textTiltTimeConstant.getText().toString());}
+		catch(Exception e){TiltTimeConstant = AdaptiveInput.DEFAULT_TIME_CONSTANT;}
+		
 		width = metrics.widthPixels;
 		height = metrics.heightPixels;
 		maxCellsX = (int)(width/12);
@@ -115,6 +142,7 @@ public class MainActivity extends Activity {
 		else{DisplayHeight = Math.max(Math.min(DisplayHeight,100), 0);}
 		if(wallHeight>20 || wallHeight < 1){wallHeight = 1;}
 		if(wallWidth>20 || wallWidth < 1){wallWidth = 1;}
+		TiltTimeConstant = Math.max(Math.min(TiltTimeConstant,1), 0);
 				
 		textRows.setText(((Integer)CellCountX).toString());
 		textColumns.setText(((Integer)CellCountY).toString());
@@ -124,9 +152,17 @@ public class MainActivity extends Activity {
 		textDisplayHeight.setText(((Integer)DisplayHeight).toString());
 		textWallWidth.setText(((Integer)wallWidth).toString());
 		textWallHeight.setText(((Integer)wallHeight).toString());
+		textTiltTimeConstant.setText(((Float)TiltTimeConstant).toString());
 		
 		parem.putBoolean("AlarmMode", checkAlarmMode.isChecked());
 		parem.putBoolean("AutomaticBorders", checkAutomaticBorders.isChecked());
+		parem.putBoolean("SurfaceRendering", checkSurfaceRendering.isChecked());
+		parem.putBoolean("AdaptiveSensorRate", checkAdaptiveInput.isChecked());
+		parem.putBoolean("RecordReplay", checkRecordReplay.isChecked());
+		parem.putBoolean("ShowFrameMetrics", checkFrameMetrics.isChecked());
+		// the spinner lists the algorithms in MazeAlgorithm's order
+		parem.putString("MazeAlgorithm", MazeAlgorithm.values()[spinnerAlgorithm.getSelectedItemPosition()].name());
+		parem.putLong("Seed", Seed);
 		parem.putInt("CellCountX", CellCountX);
 		parem.putInt("CellCountY", CellCountY);
 		parem.putInt("NUM_PARTICLES", NUM_PARTICLES);
@@ -135,6 +171,7 @@ public class MainActivity extends Activity {
 		parem.putInt("wallHeight",wallHeight);
 		parem.putFloat("TrapBoxRatio", TrapBoxRatio);
 		parem.putFloat("BallSize", BallSize);
+		parem.putFloat("TiltTimeConstant", TiltTimeConstant);
 		parem.putInt("level", 1);
 		
 		return parem;
@@ -0,0 +1,204 @@
+package edu.ksu.cis.android.project3;
+
+import edu.ksu.cis.android.project3.core.FrameMetrics;
+import edu.ksu.cis.android.project3.core.Maze;
+import edu.ksu.cis.android.project3.core.HudText;
+import edu.ksu.cis.android.project3.core.MazeGeometry;
+import edu.ksu.cis.android.project3.core.SimulationLoop;
+import edu.ksu.cis.android.project3.core.Snapshot;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/*
+ * Draws a frame of the game, the maze and the balls under it, onto any
+ * canvas. Shared by the View and the SurfaceView backends; only one of
+ * them draws with it at a time. The level it draws can be swapped between
+ * frames, from any thread.
+ */
+public class MazeRenderer {
+	private MazeGeometry mGeometry;
+	private Maze mMaze;
+	private final SimulationLoop mSimulationLoop;
+	private final Snapshot mRenderSnapshot;
+	private final HudText mHud = new HudText();
+	private final int NUM_PARTICLES;
+	private int level;
+	private final BallBatch mBallBatch;
+	private final Bitmap mWood;
+	private Bitmap mMazeLayer;
+	private volatile boolean mMazeLayerDirty = true;
+	private final Paint lineUp;
+	private final Paint lineAcross;
+	private final Paint TrapPaint;
+	private FrameMetrics mMetrics;
+	private MetricsOverlay mOverlay;
+
+	public MazeRenderer(MazeGeometry geometry, Maze maze, SimulationLoop loop,
+			int NUM_PARTICLES, int level, Bitmap ball, Bitmap wood) {
+		mGeometry = geometry;
+		mMaze = maze;
+		mSimulationLoop = loop;
+		mRenderSnapshot = new Snapshot(NUM_PARTICLES);
+		this.NUM_PARTICLES = NUM_PARTICLES;
+		this.level = level;
+		mBallBatch = new BallBatch(ball, NUM_PARTICLES);
+		mWood = wood;
+
+		lineUp = new Paint();
+		lineUp.setColor(Color.YELLOW);
+		lineUp.setStrokeWidth(geometry.wallWidth);
+		lineAcross = new Paint();
+		lineAcross.setColor(Color.YELLOW);
+		lineAcross.setStrokeWidth(geometry.wallHeight);
+		TrapPaint = new Paint();
+		TrapPaint.setColor(Color.BLACK);
+	}
+
+	/*
+	 * Draws a different level from the next frame on, keeping the ball
+	 * buffers and the maze layer's bitmap. The wood stays the same.
+	 */
+	public synchronized void setLevel(MazeGeometry geometry, Maze maze, int level, Bitmap ball) {
+		mGeometry = geometry;
+		mMaze = maze;
+		this.level = level;
+		mBallBatch.setBitmap(ball);
+		lineUp.setStrokeWidth(geometry.wallWidth);
+		lineAcross.setStrokeWidth(geometry.wallHeight);
+		mMazeLayerDirty = true;
+	}
+
+	/*
+	 * Records how long the maze and the balls take to draw into metrics
+	 * every frame, and shows it all over the maze. null to stop.
+	 */
+	public synchronized void setMetrics(FrameMetrics metrics) {
+		mMetrics = metrics;
+		mOverlay = metrics != null ? new MetricsOverlay(metrics, mSimulationLoop.getInput()) : null;
+	}
+
+	public synchronized void draw(Canvas canvas) {
+		final FrameMetrics metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		/*
+		 * draw the background, walls and traps, which only change with
+		 * the maze
+		 */
+		if (mMazeLayerDirty) {
+			mMazeLayerDirty = false;
+			drawMazeLayer();
+		}
+		canvas.drawBitmap(mMazeLayer, 0, 0, null);
+		final long mazeDone = metrics != null ? System.nanoTime() : 0;
+
+		final MazeGeometry g = mGeometry;
+		final float mazeHeightPixels = g.mazeHeightPixels;
+
+		/*
+		 * the simulation runs on its own thread, take the latest state it
+		 * published and interpolate between its last two steps. This
+		 * draws the balls one step behind the simulation.
+		 */
+		final Snapshot balls = mRenderSnapshot;
+		mSimulationLoop.read(balls);
+		float alpha = (System.nanoTime() - balls.mTime) / (float) SimulationLoop.STEP_NANOS;
+		alpha = Math.min(Math.max(alpha, 0f), 1f);
+
+		final BallBatch batch = mBallBatch;
+		batch.begin();
+		for (int i = 0; i < NUM_PARTICLES; i++) {
+			/*
+			 * We transform the canvas so that the coordinate system matches
+			 * the sensors coordinate system with the origin in the center
+			 * of the screen and the unit is the meter.
+			 */
+			if(balls.isEnabled(i)){
+				float x = g.xc + (balls.mLastX[i] + (balls.mX[i] - balls.mLastX[i]) * alpha) * g.xs;
+				float y = g.yc - (balls.mLastY[i] + (balls.mY[i] - balls.mLastY[i]) * alpha) * g.ys;
+				batch.add(x, y);
+			}
+		}
+		batch.draw(canvas);
+		if (metrics != null) {
+			final long ballsDone = System.nanoTime();
+			metrics.frame(start, mazeDone, ballsDone);
+			mOverlay.draw(canvas, lineUp, ballsDone);
+		}
+
+		/*
+		 * The readout is for the last ball, which is the one that ended
+		 * up on screen back when every ball drew its own over the others.
+		 */
+		final int last = NUM_PARTICLES - 1;
+		int hudX = 0;
+		int hudY = 0;
+		if(balls.isEnabled(last)){
+			hudX = (int) (g.xc + (balls.mLastX[last] + (balls.mX[last] - balls.mLastX[last]) * alpha) * g.xs);
+			hudY = (int) (g.yc - (balls.mLastY[last] + (balls.mY[last] - balls.mLastY[last]) * alpha) * g.ys);
+		}
+		final HudText hud = mHud;
+		hud.set(level, hudX, hudY, balls.mBoxX[last], balls.mBoxY[last]);
+		canvas.drawText(hud.chars, 0, hud.length, 0, mazeHeightPixels+13, lineUp);
+	}
+
+	/*
+	 * Renders the wood, the walls, the traps and the labels into
+	 * mMazeLayer. Called before the next frame whenever the maze changed.
+	 */
+	private void drawMazeLayer() {
+		final MazeGeometry g = mGeometry;
+		if (mMazeLayer == null) {
+			mMazeLayer = Bitmap.createBitmap(mWood.getWidth(), mWood.getHeight(), Bitmap.Config.RGB_565);
+		}
+		final Canvas canvas = new Canvas(mMazeLayer);
+		canvas.drawBitmap(mWood, 0, 0, null);
+
+		// Draw Walls
+		final float boxWidth = g.boxWidth;
+		final float boxHeight = g.boxHeight;
+		final int wallWidth = g.wallWidth;
+		final int wallHeight = g.wallHeight;
+		final float mazeWidthPixels = g.mazeWidthPixels;
+		final float mazeHeightPixels = g.mazeHeightPixels;
+		final Maze maze = mMaze;
+		for (int i = 0; i < maze.CellCountX; i++) {
+			for (int j = 0; j < maze.CellCountY; j++) {
+				final int box = maze.cells[maze.index(i, j)];
+				if ((box & Maze.DOWN) == 0)
+				{
+					canvas.drawLine(
+						(boxWidth+wallWidth)*i,								(boxHeight+wallHeight)*(j+1)+wallHeight/2,
+						(boxWidth+wallWidth)*(i+1)+wallWidth-1f,			(boxHeight+wallHeight)*(j+1)+wallHeight/2,lineAcross
+							);
+				}
+				if ((box & Maze.RIGHT) == 0){
+					canvas.drawLine(
+						(boxWidth+wallWidth)*(i+1)+wallWidth/2,				(boxHeight+wallHeight)*j,
+						(boxWidth+wallWidth)*(i+1)+wallWidth/2,				(boxHeight+wallHeight)*(j+1)+wallHeight-1f,lineUp
+						);
+				}
+				//Traps!
+				if((box & Maze.TRAP) != 0){
+					canvas.drawCircle(i*(wallWidth+boxWidth)+wallWidth + boxWidth/2, j*(wallHeight+boxHeight)+wallHeight+boxHeight/2, Math.min(boxWidth/2,boxHeight/2), TrapPaint);
+				}
+			}
+		}
+		// Draw Borders
+		canvas.drawLine(0, wallHeight/2, mazeWidthPixels, wallHeight/2, lineAcross);
+		canvas.drawLine(wallWidth/2, 0, wallWidth/2, mazeHeightPixels, lineUp);
+
+		//Start and end text.
+		canvas.drawText("START", boxWidth/2, boxHeight/2, lineUp);
+		canvas.drawText("END!!", mazeWidthPixels-boxWidth/2, mazeHeightPixels-boxHeight/2, lineUp);
+	}
+
+	/*
+	 * Has the maze layer redrawn before the next frame, for when a trap
+	 * or wall changes.
+	 */
+	public void invalidateMazeLayer() {
+		mMazeLayerDirty = true;
+	}
+}
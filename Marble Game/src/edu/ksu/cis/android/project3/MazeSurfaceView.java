@@ -0,0 +1,82 @@
+package edu.ksu.cis.android.project3;
+
+import java.util.concurrent.locks.LockSupport;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/*
+ * The SurfaceView rendering backend. Frames are drawn on a thread of their
+ * own with lockCanvas and unlockCanvasAndPost, so they never wait behind
+ * input or Toasts in the UI thread's queue the way View.invalidate does.
+ *
+ * Choreographer is API 16, so frames are paced without it: posting blocks
+ * while the compositor still holds the surface's buffers, and on top of
+ * that the thread never starts frames faster than the display refreshes.
+ */
+public class MazeSurfaceView extends SurfaceView implements SurfaceHolder.Callback, Runnable {
+	private final MazeRenderer mRenderer;
+	private final long mFrameNanos;
+	private Thread mThread;
+	private volatile boolean mRunning;
+
+	public MazeSurfaceView(Context context, MazeRenderer renderer, float refreshRate) {
+		super(context);
+		mRenderer = renderer;
+		mFrameNanos = (long) (1000000000 / (refreshRate > 0 ? refreshRate : 60));
+		getHolder().addCallback(this);
+	}
+
+	public void surfaceCreated(SurfaceHolder holder) {
+		mRunning = true;
+		mThread = new Thread(this, "Render");
+		mThread.start();
+	}
+
+	public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {}
+
+	/*
+	 * The surface is gone once this returns, so wait for the thread to
+	 * let go of it.
+	 */
+	public void surfaceDestroyed(SurfaceHolder holder) {
+		mRunning = false;
+		boolean interrupted = false;
+		while (true) {
+			try {
+				mThread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		mThread = null;
+		if (interrupted) {Thread.currentThread().interrupt();}
+	}
+
+	public void run() {
+		final SurfaceHolder holder = getHolder();
+		long next = System.nanoTime();
+		while (mRunning) {
+			final Canvas canvas = holder.lockCanvas();
+			if (canvas == null) {
+				// the surface is going away
+				LockSupport.parkNanos(mFrameNanos);
+				continue;
+			}
+			try {
+				mRenderer.draw(canvas);
+			} finally {
+				holder.unlockCanvasAndPost(canvas);
+			}
+			final long now = System.nanoTime();
+			next += mFrameNanos;
+			if (next > now) {LockSupport.parkNanos(next - now);}
+			// fell behind, start counting again from now instead of
+			// rushing out frames to catch up
+			else {next = now;}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package edu.ksu.cis.android.project3;
+
+import edu.ksu.cis.android.project3.core.AdaptiveInput;
+import edu.ksu.cis.android.project3.core.FrameMetrics;
+import edu.ksu.cis.android.project3.core.Histogram;
+import edu.ksu.cis.android.project3.core.ParticleSystem;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/*
+ * The FrameMetrics readout drawn over the top left of the maze, medians
+ * and 99th percentiles in microseconds:
+ *
+ *   step 180/420 max 900
+ *   positions 40/90 collisions 120/300
+ *   iterations 3/10 of 10 contacts 45/90
+ *   maze 900/1500 balls 700/1200 frame 16600/33000
+ *   gc 2 in frames 33000/40000 dropped 0
+ *   input play 50/s changes 3 smoothing 50 ms
+ *
+ * The last line is the AdaptiveInput: the rate it asked the sensor for,
+ * the samples a second that actually came since the last refresh, how
+ * many times the rate changed, and the tilt filter's time constant.
+ *
+ * Like HudText, each line is formatted straight into a char array that
+ * lives as long as the renderer, so drawing it creates no garbage. The
+ * lines are only formatted again every REFRESH_NANOS, slowly enough to
+ * be read.
+ */
+public class MetricsOverlay {
+	private static final long REFRESH_NANOS = 250000000L;
+	private static final int LINES = 6;
+	// AdaptiveInput's IDLE, PLAY and FAST
+	private static final String[] MODES = {"idle", "play", "fast"};
+	// the readout's lines are 13 pixels apart, like the HUD under the maze
+	private static final float LINE_HEIGHT = 13;
+
+	private final FrameMetrics mMetrics;
+	private final AdaptiveInput mInput;
+	private final char[][] mLines = new char[LINES][96];
+	private final int[] mLengths = new int[LINES];
+	private char[] mChars;
+	private int mLength;
+	private long mFormatted;
+	private int mSamples;
+
+	public MetricsOverlay(FrameMetrics metrics, AdaptiveInput input) {
+		mMetrics = metrics;
+		mInput = input;
+	}
+
+	// now is System.nanoTime()
+	public void draw(Canvas canvas, Paint paint, long now) {
+		if (mFormatted == 0 || now - mFormatted > REFRESH_NANOS) {
+			format(now - mFormatted);
+			mFormatted = now;
+		}
+		for (int l = 0; l < LINES; l++) {
+			canvas.drawText(mLines[l], 0, mLengths[l], LINE_HEIGHT, LINE_HEIGHT * (l + 2), paint);
+		}
+	}
+
+	// elapsed is the time since the last format, nanoseconds
+	private void format(long elapsed) {
+		final FrameMetrics m = mMetrics;
+		begin(0);
+		append("step ");
+		append(m.step, 1000);
+		append(" max ");
+		append(m.step.max() / 1000);
+		end(0);
+
+		begin(1);
+		append("positions ");
+		append(m.positions, 1000);
+		append(" collisions ");
+		append(m.collisions, 1000);
+		end(1);
+
+		begin(2);
+		append("iterations ");
+		append(m.iterations, 1);
+		append(" of ");
+		append(ParticleSystem.NUM_MAX_ITERATIONS);
+		append(" contacts ");
+		append(m.contacts, 1);
+		end(2);
+
+		begin(3);
+		append("maze ");
+		append(m.maze, 1000);
+		append(" balls ");
+		append(m.balls, 1000);
+		append(" frame ");
+		append(m.frame, 1000);
+		end(3);
+
+		begin(4);
+		append("gc ");
+		append(m.collections());
+		append(" in frames ");
+		append(m.gcFrame, 1000);
+		append(" dropped ");
+		append(m.droppedSamples());
+		end(4);
+
+		final AdaptiveInput input = mInput;
+		final int samples = m.samples();
+		begin(5);
+		append("input ");
+		append(MODES[input.getMode()]);
+		append(" ");
+		// nothing to divide by the first time
+		append(mFormatted == 0 ? 0 : (samples - mSamples) * 1000000000L / elapsed);
+		append("/s changes ");
+		append(input.getModeChanges());
+		append(" smoothing ");
+		append(Math.round(input.getTimeConstant() * 1000));
+		append(" ms");
+		end(5);
+		mSamples = samples;
+	}
+
+	private void begin(int line) {
+		mChars = mLines[line];
+		mLength = 0;
+	}
+
+	private void end(int line) {mLengths[line] = mLength;}
+
+	// the median and the 99th percentile, "50/99"
+	private void append(Histogram h, long scale) {
+		append(h.percentile(50) / scale);
+		append("/");
+		append(h.percentile(99) / scale);
+	}
+
+	// a constant, charAt allocates nothing
+	private void append(String s) {
+		for (int k = 0; k < s.length() && mLength < mChars.length; k++) {mChars[mLength++] = s.charAt(k);}
+	}
+
+	// Long.toString without the String, values are never negative
+	private void append(long value) {
+		int digits = 1;
+		for (long p = value / 10; p != 0; p /= 10) {digits++;}
+		if (mLength + digits > mChars.length) {return;}
+		long v = value;
+		final int end = mLength + digits;
+		for (int k = end - 1; k >= mLength; k--) {
+			mChars[k] = (char) ('0' + v % 10);
+			v /= 10;
+		}
+		mLength = end;
+	}
+}
@@ -0,0 +1,91 @@
+package edu.ksu.cis.android.project3;
+
+import java.lang.reflect.Method;
+
+import edu.ksu.cis.android.project3.core.AdaptiveInput;
+import edu.ksu.cis.android.project3.core.SimulationLoop;
+import android.hardware.Sensor;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Build;
+
+/*
+ * Registers for accelerometer events at the rate an AdaptiveInput mode
+ * asks for, batched where the platform can.
+ * Sensor batching, registerListener with a maximum report latency and
+ * Sensor.getFifoMaxEventCount, is API 19, past the SDK this builds
+ * against, so both are looked up by reflection.
+ *
+ * PLAY reads the sensor at SENSOR_DELAY_UI, about every 60 ms. With a
+ * hardware FIFO it is sampled every 20 ms instead but delivered only
+ * every 60 ms: three times the samples, each with its own timestamp,
+ * for the same number of wakeups and no staler a tilt. IDLE drops to
+ * SENSOR_DELAY_NORMAL, about every 200 ms, or a 100 ms sample delivered
+ * every 200 ms. FAST is SENSOR_DELAY_GAME, about every 20 ms, and never
+ * batched, since it is for when the tilt has to get through quickly.
+ */
+public class SensorBatching {
+	static final int SAMPLING_PERIOD_US = 20000;
+	static final int MAX_REPORT_LATENCY_US = 60000;
+	static final int IDLE_SAMPLING_PERIOD_US = 100000;
+	static final int IDLE_MAX_REPORT_LATENCY_US = 200000;
+
+	private static final Method sRegisterListener;
+	private static final Method sGetFifoMaxEventCount;
+	static {
+		Method register = null;
+		Method fifo = null;
+		if (Build.VERSION.SDK_INT >= 19) {
+			try {
+				register = SensorManager.class.getMethod("registerListener",
+						SensorEventListener.class, Sensor.class, int.class, int.class);
+				fifo = Sensor.class.getMethod("getFifoMaxEventCount");
+			} catch (NoSuchMethodException e) {
+				register = null;
+			}
+		}
+		sRegisterListener = register;
+		sGetFifoMaxEventCount = fifo;
+	}
+
+	/*
+	 * The most samples that can arrive before the simulation takes them,
+	 * for sizing its ring: a flush of the sensor's whole FIFO where it
+	 * batches, else the longest report latency at the fastest sampling
+	 * period. Doubled, since the simulation can stall for a while on
+	 * top of a burst.
+	 */
+	public static int maxBurst(Sensor sensor) {
+		int burst = IDLE_MAX_REPORT_LATENCY_US / SAMPLING_PERIOD_US;
+		if (sGetFifoMaxEventCount != null) {
+			try {burst = Math.max(burst, (Integer) sGetFifoMaxEventCount.invoke(sensor));}
+			catch (Exception e) {
+				// no FIFO to size for
+			}
+		}
+		return Math.max(Math.min(burst * 2, SimulationLoop.MAX_SAMPLES), SimulationLoop.DEFAULT_SAMPLES);
+	}
+
+	// returns whether the events will come batched
+	public static boolean register(SensorManager manager, SensorEventListener listener, Sensor sensor, int mode) {
+		if (mode == AdaptiveInput.FAST) {
+			manager.registerListener(listener, sensor, SensorManager.SENSOR_DELAY_GAME);
+			return false;
+		}
+		final boolean idle = mode == AdaptiveInput.IDLE;
+		if (sRegisterListener != null) {
+			try {
+				if ((Integer) sGetFifoMaxEventCount.invoke(sensor) > 0
+						&& (Boolean) sRegisterListener.invoke(manager, listener, sensor,
+								idle ? IDLE_SAMPLING_PERIOD_US : SAMPLING_PERIOD_US,
+								idle ? IDLE_MAX_REPORT_LATENCY_US : MAX_REPORT_LATENCY_US)) {
+					return true;
+				}
+			} catch (Exception e) {
+				// fall back to unbatched below
+			}
+		}
+		manager.registerListener(listener, sensor, idle ? SensorManager.SENSOR_DELAY_NORMAL : SensorManager.SENSOR_DELAY_UI);
+		return false;
+	}
+}
@@ -0,0 +1,112 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Filters the accelerometer and picks how fast it should be read.
+ *
+ * The reading is gravity, which tilts the maze, plus whatever the hand
+ * holding the device is doing. An exponential low-pass filter with a time
+ * constant of timeConstant seconds keeps the gravity; the difference is
+ * the motion. The filter's weight comes from the time between samples,
+ * so it smooths the same at any sensor rate. A time constant of 0 turns
+ * it off. A complementary filter would need a gyroscope, which the game
+ * doesn't read.
+ *
+ * The mode says what rate the sensor should be read at: IDLE when the
+ * device has been still and every ball at rest for IDLE_AFTER, FAST while
+ * the device has been shaken within CALM_AFTER, PLAY otherwise. The
+ * listener hears about each change, on the simulation thread.
+ *
+ * filter and update are called by the simulation thread only; the getters
+ * are safe from any thread, for measuring.
+ */
+public class AdaptiveInput {
+	public static final int IDLE = 0;
+	public static final int PLAY = 1;
+	public static final int FAST = 2;
+
+	public interface Listener {
+		void onInputModeChanged(int mode);
+	}
+
+	public static final float DEFAULT_TIME_CONSTANT = 0.05f;
+	// motion, in m/s^2, below which the device counts as still and above which as shaken
+	static final float STILL_MOTION = 0.3f;
+	static final float FAST_MOTION = 4f;
+	static final long IDLE_AFTER = 2000000000L;
+	static final long CALM_AFTER = 1000000000L;
+
+	private final float mTimeConstant;
+	private final boolean mAdaptive;
+	private Listener mListener;
+	private boolean mStarted;
+	private long mLastTime;
+	private long mLastMoving;
+	private long mLastFast;
+	private volatile float mGravityX;
+	private volatile float mGravityY;
+	private volatile float mMotion;
+	private volatile int mMode = PLAY;
+	private volatile int mModeChanges;
+
+	/*
+	 * adaptive false keeps the mode at PLAY, for a fixed rate, but still
+	 * filters.
+	 */
+	public AdaptiveInput(float timeConstant, boolean adaptive) {
+		mTimeConstant = timeConstant;
+		mAdaptive = adaptive;
+	}
+
+	public void setListener(Listener listener) {mListener = listener;}
+
+	// takes in a reading measured at time, in nanoseconds
+	public void filter(long time, float x, float y) {
+		if (!mStarted || mTimeConstant <= 0) {
+			mGravityX = x;
+			mGravityY = y;
+			mStarted = true;
+		} else {
+			final float dt = Math.max(time - mLastTime, 0) * (1.0f / 1000000000.0f);
+			final float a = dt / (mTimeConstant + dt);
+			mGravityX += (x - mGravityX) * a;
+			mGravityY += (y - mGravityY) * a;
+		}
+		mLastTime = time;
+		final float mx = x - mGravityX;
+		final float my = y - mGravityY;
+		final float motion = (float) Math.sqrt(mx * mx + my * my);
+		mMotion = motion;
+		if (motion > STILL_MOTION) {mLastMoving = time;}
+		if (motion > FAST_MOTION) {mLastFast = time;}
+	}
+
+	// picks the mode for now, ballsAtRest being whether no ball is moving
+	public void update(long now, boolean ballsAtRest) {
+		if (!mAdaptive) {return;}
+		int mode = PLAY;
+		if (mLastFast != 0 && now - mLastFast < CALM_AFTER) {mode = FAST;}
+		else if (ballsAtRest && now - mLastMoving > IDLE_AFTER) {mode = IDLE;}
+		if (mode != mMode) {
+			mMode = mode;
+			mModeChanges++;
+			if (mListener != null) {mListener.onInputModeChanged(mode);}
+		}
+	}
+
+	/*
+	 * Starts over from the next reading, for when the sensor was away and
+	 * the filter's state is stale. Counts as moving, so the mode can't
+	 * drop to IDLE straight away.
+	 */
+	public void reset(long now) {
+		mStarted = false;
+		mLastMoving = now;
+	}
+
+	public float getTimeConstant() {return mTimeConstant;}
+	public float getGravityX() {return mGravityX;}
+	public float getGravityY() {return mGravityY;}
+	public float getMotion() {return mMotion;}
+	public int getMode() {return mMode;}
+	public int getModeChanges() {return mModeChanges;}
+}
@@ -0,0 +1,149 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.Arrays;
+
+/*
+ * Uniform grid broadphase. Balls are binned into the maze's Box
+ * cells, which are always wider and taller than sBallDiameter, so
+ * two touching balls are always in the same or in neighbouring
+ * cells. Each cell is a doubly linked list threaded through the
+ * arrays below, and a ball is relinked whenever a collision or a
+ * wall moves it into another cell, so the grid stays exact while
+ * the collision pass runs.
+ */
+class BroadPhase {
+	private final ParticleSystem mSystem;
+	private final ParticleStore mBalls;
+	private MazeGeometry mGeometry;
+	private int mCellsX;
+	private int mCellsY;
+	private int[] mHead;	// first ball in each cell, -1 if empty
+	private final int[] mNext;
+	private final int[] mPrev;
+	private final int[] mCell;	// cell each ball is linked into, -1 if none
+	private final int[] mStamp;	// last pass each ball was tested in
+	private int mPass;
+
+	BroadPhase(ParticleSystem system, ParticleStore balls, MazeGeometry geometry) {
+		final int particles = balls.count;
+		mSystem = system;
+		mBalls = balls;
+		setGeometry(geometry);
+		mNext = new int[particles];
+		mPrev = new int[particles];
+		mCell = new int[particles];
+		mStamp = new int[particles];
+	}
+
+	/*
+	 * Bins balls into another maze's cells from the next rebuild on,
+	 * keeping the cell array if it is already big enough.
+	 */
+	void setGeometry(MazeGeometry geometry) {
+		mGeometry = geometry;
+		mCellsX = geometry.CellCountX;
+		mCellsY = geometry.CellCountY;
+		if (mHead == null || mHead.length < mCellsX * mCellsY) {mHead = new int[mCellsX * mCellsY];}
+	}
+
+	private int cellOf(int i) {return cellOf(mGeometry, mBalls.mPosX[i], mBalls.mPosY[i]);}
+
+	// the cell a ball at (x, y) is binned into
+	static int cellOf(MazeGeometry g, float px, float py) {
+		// clamping keeps balls pushed past the maze edge in the border cells
+		int x = g.getBoxXFromPixel(g.xc + px * g.xs);
+		int y = g.getBoxYFromPixel(g.yc - py * g.ys);
+		x = Math.min(Math.max(x, 0), g.CellCountX - 1);
+		y = Math.min(Math.max(y, 0), g.CellCountY - 1);
+		return x * g.CellCountY + y;
+	}
+
+	private void link(int i, int c) {
+		mCell[i] = c;
+		mPrev[i] = -1;
+		mNext[i] = mHead[c];
+		if (mHead[c] != -1) {mPrev[mHead[c]] = i;}
+		mHead[c] = i;
+	}
+
+	private void unlink(int i) {
+		int c = mCell[i];
+		if (mPrev[i] != -1) {mNext[mPrev[i]] = mNext[i];}
+		else {mHead[c] = mNext[i];}
+		if (mNext[i] != -1) {mPrev[mNext[i]] = mPrev[i];}
+	}
+
+	/*
+	 * Bins every enabled ball. Called once per update, after the
+	 * integrator has moved everything.
+	 */
+	void rebuild() {
+		Arrays.fill(mHead, 0, mCellsX * mCellsY, -1);
+		Arrays.fill(mStamp, -1);
+		mPass = 0;
+		Arrays.fill(mCell, -1);
+		for (int i = mBalls.nextEnabled(0); i >= 0; i = mBalls.nextEnabled(i + 1)) {
+			link(i, cellOf(i));
+		}
+	}
+
+	/*
+	 * Relinks ball i if it has moved into another cell.
+	 */
+	void move(int i) {
+		if (mCell[i] == -1) {return;}
+		int c = cellOf(i);
+		if (c != mCell[i]) {
+			unlink(i);
+			link(i, c);
+		}
+	}
+
+	/*
+	 * Tests ball i against every ball j > i in the 3x3 cells
+	 * around it, the same pairs the brute force loop would find
+	 * touching, and against every sleeping ball, which doesn't test
+	 * for itself. A sleeping ball is woken if i has moved off where
+	 * it was resting, and otherwise stays put. If i itself
+	 * is pushed into another cell the scan is repeated around the
+	 * new cell; the stamps make sure no pair is resolved twice in
+	 * one pass. Returns how many balls i was touching.
+	 */
+	int collide(int i) {
+		final ParticleStore balls = mBalls;
+		// whether i left its resting place last step, see ParticleSystem.settle
+		final boolean moving = balls.mStill[i] < 2;
+		final int pass = mPass++;
+		int contacts = 0;
+		int c;
+		do {
+			c = mCell[i];
+			final int cx = c / mCellsY;
+			final int cy = c % mCellsY;
+			for (int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, mCellsX - 1); x++) {
+				for (int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, mCellsY - 1); y++) {
+					int j = mHead[x * mCellsY + y];
+					while (j != -1) {
+						final int next = mNext[j];
+						final boolean asleep = !balls.isAwake(j);
+						if ((j > i || asleep) && mStamp[j] != pass) {
+							mStamp[j] = pass;
+							if (mSystem.collide(i, j, !asleep || moving)) {
+								contacts++;
+								if (asleep && moving) {
+									balls.wake(j);
+									// the pass has gone by j, it won't be put back inside its walls after
+									if (j < i) {mSystem.resolveCollisionWithBounds(j);}
+								}
+								move(j);
+								move(i);
+							}
+						}
+						j = next;
+					}
+				}
+			}
+		} while (mCell[i] != c);
+		return contacts;
+	}
+}
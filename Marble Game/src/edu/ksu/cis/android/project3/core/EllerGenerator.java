@@ -0,0 +1,117 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Eller's algorithm. The maze is built a row at a time, top to bottom,
+ * knowing only which Boxes of the row below the last one are already
+ * connected, so Rows can hand out a maze of any height with memory for a
+ * single row. carve just copies the rows into the grid.
+ */
+public class EllerGenerator implements MazeGenerator {
+	public void carve(int CellCountX, int CellCountY, Rng random, byte[] cells) {
+		final Rows rows = new Rows(CellCountX, CellCountY, random);
+		final byte[] row = new byte[CellCountX];
+		for (int y = 0; y < CellCountY; y++) {
+			rows.next(row);
+			for (int x = 0; x < CellCountX; x++) {cells[x * CellCountY + y] = row[x];}
+		}
+	}
+
+	/*
+	 * The maze's rows in order, each as width Box bytes with their side
+	 * bits. Every set of Boxes connected so far must reach the next row,
+	 * and the last row joins whatever sets are left.
+	 */
+	public static class Rows {
+		private final int width;
+		private final int height;
+		private final Rng random;
+		// the set each Box of the row is in, numbered below width
+		private final int[] set;
+		// union-find over the set numbers
+		private final int[] parent;
+		private final int[] renumber;
+		private final boolean[] hasDown;
+		// which Boxes of the last row opened downwards
+		private final boolean[] down;
+		private int y;
+
+		public Rows(int width, int height, Rng random) {
+			this.width = width;
+			this.height = height;
+			this.random = random;
+			set = new int[width];
+			parent = new int[width];
+			renumber = new int[width];
+			hasDown = new boolean[width];
+			down = new boolean[width];
+			for (int x = 0; x < width; x++) {
+				set[x] = x;
+				parent[x] = x;
+			}
+		}
+
+		public boolean hasNext() {return y < height;}
+
+		public void next(byte[] row) {
+			if (y >= height) {throw new IllegalStateException("all " + height + " rows are out");}
+			final boolean last = y == height - 1;
+			for (int x = 0; x < width; x++) {row[x] = (byte) (down[x] ? Maze.UP : 0);}
+
+			// join neighbours from different sets, on the last row all of them
+			for (int x = 0; x < width - 1; x++) {
+				final int a = find(set[x]);
+				final int b = find(set[x + 1]);
+				if (a != b && (last || random.nextBoolean())) {
+					parent[b] = a;
+					row[x] |= Maze.RIGHT;
+					row[x + 1] |= Maze.LEFT;
+				}
+			}
+			y++;
+			if (last) {return;}
+
+			// go down at random, then once from any set that didn't
+			for (int x = 0; x < width; x++) {
+				down[x] = random.nextBoolean();
+				if (down[x]) {hasDown[find(set[x])] = true;}
+			}
+			for (int x = 0; x < width; x++) {
+				final int r = find(set[x]);
+				if (!hasDown[r]) {
+					down[x] = true;
+					hasDown[r] = true;
+				}
+				if (down[x]) {row[x] |= Maze.DOWN;}
+			}
+
+			/*
+			 * Number the sets again for the next row: the ones carried down
+			 * first, then a new one for each Box nothing came down into.
+			 */
+			for (int x = 0; x < width; x++) {renumber[x] = -1;}
+			int k = 0;
+			for (int x = 0; x < width; x++) {
+				if (down[x]) {
+					final int r = find(set[x]);
+					if (renumber[r] < 0) {renumber[r] = k++;}
+					set[x] = renumber[r];
+				} else {
+					set[x] = -1;
+				}
+			}
+			for (int x = 0; x < width; x++) {
+				if (set[x] < 0) {set[x] = k++;}
+				parent[x] = x;
+				hasDown[x] = false;
+			}
+		}
+
+		private int find(int s) {
+			while (parent[s] != s) {
+				parent[s] = parent[parent[s]];
+				s = parent[s];
+			}
+			return s;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+
+/*
+ * Where the time goes, kept in Histograms so that recording a step or a
+ * frame costs a few nanoTime calls and increments. The simulation and
+ * the drawing run on threads of their own at rates of their own, so the
+ * physics is recorded per step, by ParticleSystem.update, and the drawing
+ * per frame, by whatever draws the frames:
+ *
+ *   step        all of update, in nanoseconds
+ *   positions   the Verlet integration
+ *   collisions  the collision pass
+ *   iterations  collision iterations taken, of NUM_MAX_ITERATIONS
+ *   contacts    pairs found touching, over every iteration
+ *   frame       from the start of one frame to the start of the next
+ *   maze        drawing the maze layer, and redrawing it when it changed
+ *   balls       drawing the balls
+ *   gc frame    frames with a garbage collection in them
+ *
+ * Collections are noticed by a weakly held object that each one clears;
+ * the VM doesn't say how long they took, but the frames they fell in do.
+ * Tilt samples are counted too, and those the SimulationLoop had no room
+ * for.
+ *
+ * dump prints every histogram in a fixed layout, the same in the game
+ * and in TiltReplay and ReplayPlayer, to be compared across builds.
+ */
+public class FrameMetrics {
+	public final Histogram step = new Histogram();
+	public final Histogram positions = new Histogram();
+	public final Histogram collisions = new Histogram();
+	public final Histogram iterations = new Histogram();
+	public final Histogram contacts = new Histogram();
+	public final Histogram frame = new Histogram();
+	public final Histogram maze = new Histogram();
+	public final Histogram balls = new Histogram();
+	public final Histogram gcFrame = new Histogram();
+	private volatile int mCollections;
+	// written by the sensor thread only
+	private volatile int mSamples;
+	private volatile int mDroppedSamples;
+	private WeakReference<Object> mSentinel = new WeakReference<Object>(new Object());
+	private long mLastFrame;
+
+	// simulation thread, the times in nanoseconds
+	void step(long step, long positions, long collisions, int iterations, int contacts) {
+		this.step.record(step);
+		this.positions.record(positions);
+		this.collisions.record(collisions);
+		this.iterations.record(iterations);
+		this.contacts.record(contacts);
+	}
+
+	/*
+	 * Drawing thread. A frame that started at start, on System.nanoTime(),
+	 * drew the maze until mazeDone and the balls until ballsDone.
+	 */
+	public void frame(long start, long mazeDone, long ballsDone) {
+		maze.record(mazeDone - start);
+		balls.record(ballsDone - mazeDone);
+		if (mLastFrame != 0) {
+			final long interval = start - mLastFrame;
+			frame.record(interval);
+			if (mSentinel.get() == null) {
+				mCollections++;
+				gcFrame.record(interval);
+				mSentinel = new WeakReference<Object>(new Object());
+			}
+		}
+		mLastFrame = start;
+	}
+
+	// collections noticed so far
+	public int collections() {return mCollections;}
+
+	// sensor thread
+	void sample() {mSamples++;}
+	void droppedSample() {mDroppedSamples++;}
+	public int samples() {return mSamples;}
+	public int droppedSamples() {return mDroppedSamples;}
+
+	// only while neither thread is recording
+	public void reset() {
+		step.reset();
+		positions.reset();
+		collisions.reset();
+		iterations.reset();
+		contacts.reset();
+		frame.reset();
+		maze.reset();
+		balls.reset();
+		gcFrame.reset();
+		mCollections = 0;
+		mSamples = 0;
+		mDroppedSamples = 0;
+		mLastFrame = 0;
+	}
+
+	// one line per histogram, times in microseconds
+	public void dump(PrintStream out) {
+		out.println("frame metrics 1, iterations of " + ParticleSystem.NUM_MAX_ITERATIONS
+				+ ", " + mCollections + " collections, " + mDroppedSamples + " dropped samples");
+		out.println(String.format("%-12s %4s %10s %10s %10s %10s %10s %10s",
+				"name", "unit", "count", "mean", "50%", "90%", "99%", "max"));
+		dump(out, "step", step, 1000);
+		dump(out, "positions", positions, 1000);
+		dump(out, "collisions", collisions, 1000);
+		dump(out, "iterations", iterations, 1);
+		dump(out, "contacts", contacts, 1);
+		dump(out, "frame", frame, 1000);
+		dump(out, "maze", maze, 1000);
+		dump(out, "balls", balls, 1000);
+		dump(out, "gc_frame", gcFrame, 1000);
+	}
+
+	private static void dump(PrintStream out, String name, Histogram h, long scale) {
+		out.println(String.format("%-12s %4s %10d %10d %10d %10d %10d %10d",
+				name, scale == 1 ? "-" : "us", h.count(), h.mean() / scale, h.percentile(50) / scale,
+				h.percentile(90) / scale, h.percentile(99) / scale, h.max() / scale));
+	}
+}
@@ -0,0 +1,44 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.Arrays;
+
+/*
+ * The growing tree algorithm, picking a random Box off the frontier each
+ * step. Boxes leave the frontier by having the last one swapped into
+ * their place, so each Box is added and taken off once and the whole maze
+ * takes time proportional to the number of Boxes.
+ */
+public class GrowingTreeGenerator implements MazeGenerator {
+	public void carve(int CellCountX, int CellCountY, Rng random, byte[] cells) {
+		final int count = CellCountX * CellCountY;
+		final boolean[] reached = new boolean[count];
+		final int[] frontier = new int[count];
+		final int[] sides = new int[4];
+
+		final int start = random.nextInt(count);
+		reached[start] = true;
+		int size = 0;
+		frontier[size++] = start;
+		while (size != 0) {
+			final int i = random.nextInt(size);
+			final int c = frontier[i];
+			final int x = c / CellCountY;
+			final int y = c % CellCountY;
+			int n = 0;
+			if (x > 0 && !reached[c - CellCountY]) {sides[n++] = Maze.LEFT;}
+			if (x < CellCountX - 1 && !reached[c + CellCountY]) {sides[n++] = Maze.RIGHT;}
+			if (y > 0 && !reached[c - 1]) {sides[n++] = Maze.UP;}
+			if (y < CellCountY - 1 && !reached[c + 1]) {sides[n++] = Maze.DOWN;}
+			if (n == 0) {
+				// nothing left to carve into, swap the last Box into its place
+				frontier[i] = frontier[--size];
+			} else {
+				final int side = sides[random.nextInt(n)];
+				final int next = Maze.neighbor(c, side, CellCountY);
+				reached[next] = true;
+				Maze.connect(cells, c, side, CellCountY);
+				frontier[size++] = next;
+			}
+		}
+	}
+}
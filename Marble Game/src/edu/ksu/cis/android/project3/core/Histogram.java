@@ -0,0 +1,72 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Counts values into buckets eight to a power of two, so any value from
+ * 0 to Long.MAX_VALUE lands in one of a fixed 488 and is known to within
+ * an eighth. Recording is a few shifts and an increment into an array
+ * made up front; nothing is allocated after the constructor.
+ *
+ * Written by one thread. Reading from another gives values from around
+ * then, which is all a readout needs.
+ */
+public class Histogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB = 1 << SUB_BITS;
+
+	private final long[] mCounts = new long[(64 - SUB_BITS) * SUB];
+	private long mCount;
+	private long mTotal;
+	private long mMax;
+
+	// negative values count as 0
+	public void record(long value) {
+		final long v = Math.max(value, 0);
+		mCounts[index(v)]++;
+		mCount++;
+		mTotal += v;
+		if (v > mMax) {mMax = v;}
+	}
+
+	public void reset() {
+		for (int b = 0; b < mCounts.length; b++) {mCounts[b] = 0;}
+		mCount = 0;
+		mTotal = 0;
+		mMax = 0;
+	}
+
+	public long count() {return mCount;}
+	public long max() {return mMax;}
+	public long mean() {return mCount == 0 ? 0 : mTotal / mCount;}
+
+	/*
+	 * The value percent of the values are at or below, rounded up to the
+	 * top of its bucket but never past the largest value. 0 if nothing
+	 * was recorded.
+	 */
+	public long percentile(double percent) {
+		final long count = mCount;
+		if (count == 0) {return 0;}
+		final long rank = Math.max((long) Math.ceil(count * percent / 100), 1);
+		long seen = 0;
+		for (int b = 0; b < mCounts.length; b++) {
+			seen += mCounts[b];
+			if (seen >= rank) {return Math.min(lowest(b + 1) - 1, mMax);}
+		}
+		return mMax;
+	}
+
+	// values below SUB have a bucket each, then SUB buckets per power of two
+	static int index(long v) {
+		if (v < SUB) {return (int) v;}
+		final int exp = 63 - Long.numberOfLeadingZeros(v);
+		return ((exp - SUB_BITS + 1) << SUB_BITS) + (int) ((v >>> (exp - SUB_BITS)) & (SUB - 1));
+	}
+
+	// the smallest value in bucket b
+	static long lowest(int b) {
+		if (b < SUB) {return b;}
+		final int exp = (b >> SUB_BITS) + SUB_BITS - 1;
+		if (exp > 62) {return Long.MAX_VALUE;}
+		return (long) (SUB + (b & (SUB - 1))) << (exp - SUB_BITS);
+	}
+}
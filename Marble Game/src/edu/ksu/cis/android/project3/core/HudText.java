@@ -0,0 +1,53 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * The level and position readout under the maze, "Level 3 (120,455) (4,12)".
+ * It is formatted straight into a char array that lives as long as the
+ * view, so drawing it every frame creates no garbage; draw it with
+ * Canvas.drawText(chars, 0, length, x, y, paint).
+ */
+public class HudText {
+	private static final char[] LEVEL = {'L', 'e', 'v', 'e', 'l', ' '};
+
+	// "Level " + 5 ints of at most 11 chars + " (" + "," + ") (" + "," + ")"
+	public final char[] chars = new char[LEVEL.length + 5 * 11 + 8];
+	public int length;
+
+	public void set(int level, int x, int y, int boxX, int boxY) {
+		length = 0;
+		for (int k = 0; k < LEVEL.length; k++) {chars[length++] = LEVEL[k];}
+		append(level);
+		chars[length++] = ' ';
+		chars[length++] = '(';
+		append(x);
+		chars[length++] = ',';
+		append(y);
+		chars[length++] = ')';
+		chars[length++] = ' ';
+		chars[length++] = '(';
+		append(boxX);
+		chars[length++] = ',';
+		append(boxY);
+		chars[length++] = ')';
+	}
+
+	/*
+	 * Integer.toString without the String. Works on the negative value so
+	 * Integer.MIN_VALUE needs no special case.
+	 */
+	private void append(int value) {
+		int v = value;
+		if (v < 0) {chars[length++] = '-';}
+		else {v = -v;}
+		int digits = 1;
+		for (int p = v / 10; p != 0; p /= 10) {digits++;}
+		int end = length + digits;
+		for (int k = end - 1; k >= length; k--) {
+			chars[k] = (char) ('0' - v % 10);
+			v /= 10;
+		}
+		length = end;
+	}
+
+	public String toString() {return new String(chars, 0, length);}
+}
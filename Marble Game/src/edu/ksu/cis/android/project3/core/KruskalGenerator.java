@@ -0,0 +1,52 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Randomized Kruskal: knocks down the inner walls in random order, each
+ * one only if the Boxes on either side aren't connected yet, which a
+ * union-find over the Boxes answers. The walls are shuffled as they are
+ * drawn, and drawing stops once every Box is in one set.
+ */
+public class KruskalGenerator implements MazeGenerator {
+	public void carve(int CellCountX, int CellCountY, Rng random, byte[] cells) {
+		final int count = CellCountX * CellCountY;
+		// Box c's right wall is c * 2, its bottom wall c * 2 + 1
+		final int[] walls = new int[2 * count];
+		int n = 0;
+		for (int x = 0; x < CellCountX; x++) {
+			for (int y = 0; y < CellCountY; y++) {
+				final int c = x * CellCountY + y;
+				if (x < CellCountX - 1) {walls[n++] = c * 2;}
+				if (y < CellCountY - 1) {walls[n++] = c * 2 + 1;}
+			}
+		}
+		final int[] parent = new int[count];
+		final byte[] rank = new byte[count];
+		for (int c = 0; c < count; c++) {parent[c] = c;}
+
+		int sets = count;
+		for (int k = 0; k < n && sets > 1; k++) {
+			final int r = k + random.nextInt(n - k);
+			final int wall = walls[r];
+			walls[r] = walls[k];
+			final int c = wall >> 1;
+			final int side = (wall & 1) == 0 ? Maze.RIGHT : Maze.DOWN;
+			int a = find(parent, c);
+			int b = find(parent, Maze.neighbor(c, side, CellCountY));
+			if (a == b) {continue;}
+			if (rank[a] < rank[b]) {final int t = a; a = b; b = t;}
+			parent[b] = a;
+			if (rank[a] == rank[b]) {rank[a]++;}
+			Maze.connect(cells, c, side, CellCountY);
+			sets--;
+		}
+	}
+
+	// the set c is in, halving the path to it on the way
+	private static int find(int[] parent, int c) {
+		while (parent[c] != c) {
+			parent[c] = parent[parent[c]];
+			c = parent[c];
+		}
+		return c;
+	}
+}
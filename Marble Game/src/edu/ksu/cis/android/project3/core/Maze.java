@@ -0,0 +1,141 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A grid of Boxes. The Box in the top left corner, (0,0), is where the balls
+ * start and the one in the bottom right corner is the goal.
+ *
+ * Each Box is one byte of cells: a bit for each side with a passage
+ * through it, and a bit each for a trap and the goal. Box (x, y) is
+ * cells[x * CellCountY + y], so the Boxes left and right of Box c are
+ * c - CellCountY and c + CellCountY and the ones above and below it are
+ * c - 1 and c + 1.
+ */
+public class Maze {
+	public static final int LEFT = 1;
+	public static final int RIGHT = 2;
+	public static final int UP = 4;
+	public static final int DOWN = 8;
+	public static final int SIDES = LEFT | RIGHT | UP | DOWN;
+	public static final int TRAP = 16;
+	public static final int GOAL = 32;
+
+	public final int CellCountX;
+	public final int CellCountY;
+	public final byte[] cells;
+
+	// a growing tree maze, the default
+	public Maze(int CellCountX, int CellCountY, int TrapCount, long seed) {
+		this(CellCountX, CellCountY, TrapCount, MazeAlgorithm.GROWING_TREE.generator, seed);
+	}
+
+	/*
+	 * Carves the maze with generator, then puts traps anywhere off the way
+	 * from the start to the goal. The goal can always be reached so there
+	 * is never a second try, and the same seed gives the same maze.
+	 */
+	public Maze(int CellCountX, int CellCountY, int TrapCount, MazeGenerator generator, long seed) {
+		this.CellCountX = CellCountX;
+		this.CellCountY = CellCountY;
+		cells = new byte[CellCountX * CellCountY];
+		final Rng random = new Rng(seed, Rng.MAZE);
+		generator.carve(CellCountX, CellCountY, random, cells);
+		cells[cells.length - 1] |= GOAL;
+		placeTraps(CellCountX, CellCountY, TrapCount, random, cells);
+	}
+
+	// a maze with a copy of cells, as they were recorded
+	public Maze(int CellCountX, int CellCountY, byte[] cells) {
+		this.CellCountX = CellCountX;
+		this.CellCountY = CellCountY;
+		this.cells = cells.clone();
+	}
+
+	public int index(int x, int y) {return x * CellCountY + y;}
+	public boolean isOpen(int x, int y, int side) {return (cells[x * CellCountY + y] & side) != 0;}
+	public boolean isTrap(int x, int y) {return (cells[x * CellCountY + y] & TRAP) != 0;}
+	public boolean isGoal(int x, int y) {return (cells[x * CellCountY + y] & GOAL) != 0;}
+	public void setTrap(int x, int y, boolean trap) {
+		if(trap){cells[x * CellCountY + y] |= TRAP;}
+		else{cells[x * CellCountY + y] &= ~TRAP;}
+	}
+
+	// the Box on the other side of Box c's side
+	public static int neighbor(int c, int side, int CellCountY) {
+		switch (side) {
+		case LEFT: return c - CellCountY;
+		case RIGHT: return c + CellCountY;
+		case UP: return c - 1;
+		default: return c + 1;
+		}
+	}
+
+	// LEFT and RIGHT, UP and DOWN
+	public static int opposite(int side) {return (side & (LEFT | UP)) != 0 ? side << 1 : side >> 1;}
+
+	// opens a passage through side of Box c, from both Boxes
+	static void connect(byte[] cells, int c, int side, int CellCountY) {
+		cells[c] |= side;
+		cells[neighbor(c, side, CellCountY)] |= opposite(side);
+	}
+
+	/*
+	 * Marks the way from the start to the goal with a breadth first search,
+	 * then tries the other Boxes in random order until TrapCount of them
+	 * are traps. A Box next to a trap can't be one and traps are open on
+	 * every side. Stops short if the grid has no room for TrapCount.
+	 */
+	static void placeTraps(int CellCountX, int CellCountY, int TrapCount, Rng random, byte[] cells) {
+		if (TrapCount <= 0) {return;}
+		final int count = CellCountX * CellCountY;
+		final int goal = count - 1;
+		// the Box each Box was found from, -1 until it is found
+		final int[] parent = new int[count];
+		final int[] queue = new int[count];
+		for (int c = 0; c < count; c++) {parent[c] = -1;}
+		parent[0] = 0;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		while (head < tail) {
+			final int c = queue[head++];
+			if (c == goal) {break;}
+			final int sides = cells[c];
+			if ((sides & LEFT) != 0 && parent[c - CellCountY] < 0) {parent[c - CellCountY] = c; queue[tail++] = c - CellCountY;}
+			if ((sides & RIGHT) != 0 && parent[c + CellCountY] < 0) {parent[c + CellCountY] = c; queue[tail++] = c + CellCountY;}
+			if ((sides & UP) != 0 && parent[c - 1] < 0) {parent[c - 1] = c; queue[tail++] = c - 1;}
+			if ((sides & DOWN) != 0 && parent[c + 1] < 0) {parent[c + 1] = c; queue[tail++] = c + 1;}
+		}
+
+		// walk back from the goal marking the way out, which stays trap free
+		final int PATH = -2;
+		for (int c = goal; ; ) {
+			final int p = parent[c];
+			parent[c] = PATH;
+			if (c == 0) {break;}
+			c = p;
+		}
+
+		int m = 0;
+		for (int c = 0; c < count; c++) {
+			if (parent[c] != PATH) {queue[m++] = c;}
+		}
+		int placed = 0;
+		for (int k = 0; k < m && placed < TrapCount; k++) {
+			final int r = k + random.nextInt(m - k);
+			final int c = queue[r];
+			queue[r] = queue[k];
+			final int x = c / CellCountY;
+			final int y = c % CellCountY;
+			if ((x > 0 && (cells[c - CellCountY] & TRAP) != 0)
+					|| (x < CellCountX - 1 && (cells[c + CellCountY] & TRAP) != 0)
+					|| (y > 0 && (cells[c - 1] & TRAP) != 0)
+					|| (y < CellCountY - 1 && (cells[c + 1] & TRAP) != 0)) {continue;}
+			cells[c] |= TRAP;
+			if (x > 0) {connect(cells, c, LEFT, CellCountY);}
+			if (x < CellCountX - 1) {connect(cells, c, RIGHT, CellCountY);}
+			if (y > 0) {connect(cells, c, UP, CellCountY);}
+			if (y < CellCountY - 1) {connect(cells, c, DOWN, CellCountY);}
+			placed++;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * The maze generators the game can be started with. The name of one is
+ * what goes in the Bundle under "MazeAlgorithm".
+ */
+public enum MazeAlgorithm {
+	GROWING_TREE(new GrowingTreeGenerator()),
+	KRUSKAL(new KruskalGenerator()),
+	WILSON(new WilsonGenerator()),
+	ELLER(new EllerGenerator());
+
+	public final MazeGenerator generator;
+
+	MazeAlgorithm(MazeGenerator generator) {this.generator = generator;}
+
+	// the algorithm called name, or the growing tree if there is none
+	public static MazeAlgorithm fromName(String name) {
+		if (name != null) {
+			for (MazeAlgorithm algorithm : values()) {
+				if (algorithm.name().equals(name)) {return algorithm;}
+			}
+		}
+		return GROWING_TREE;
+	}
+}
@@ -0,0 +1,16 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A way of carving a maze. Implementations have no state of their own, so
+ * one instance can be shared, and draw every random choice from the Rng they
+ * are handed, so the same seed always gives the same maze.
+ */
+public interface MazeGenerator {
+	/*
+	 * Opens passages in cells, which comes in with every side of every Box
+	 * closed, until there is exactly one way between any two Boxes. Box
+	 * (x, y) is cells[x * CellCountY + y] and passages are opened with
+	 * Maze.connect so both Boxes have their side bits set.
+	 */
+	void carve(int CellCountX, int CellCountY, Rng random, byte[] cells);
+}
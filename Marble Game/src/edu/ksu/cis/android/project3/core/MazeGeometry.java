@@ -0,0 +1,87 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Where the maze and the balls are on screen. Positions in the simulation
+ * are in meters with the origin in the middle of the maze and y pointing up;
+ * on screen they are in pixels with the origin in the top left corner and y
+ * pointing down. xs and ys convert meters to pixels and (xc, yc) is the
+ * pixel where a ball at the origin has its top left corner.
+ */
+public class MazeGeometry {
+	public final int CellCountX;
+	public final int CellCountY;
+	public final float mazeWidthPixels;
+	public final float mazeHeightPixels;
+	public final int wallWidth;
+	public final int wallHeight;
+	public final float boxWidth;
+	public final float boxHeight;
+	public final float sBallDiameter;
+	public final float sBallDiameter2;
+	public final int ballWidth;
+	public final int ballHeight;
+	public final float mHorizontalBound;
+	public final float mVerticalBound;
+	public final float xc;
+	public final float yc;
+	public final float xs;
+	public final float ys;
+	/*
+	 * The maze's grid in meters. Walls are lines down the middle of the
+	 * drawn ones, mazeLeft and mazeTop are the outer ones, and a ball's
+	 * center stays wallRadiusX/Y, its radius plus half a wall, away from
+	 * them.
+	 */
+	public final float cellWidth;
+	public final float cellHeight;
+	public final float mazeLeft;
+	public final float mazeTop;
+	public final float wallRadiusX;
+	public final float wallRadiusY;
+
+	public MazeGeometry(int CellCountX, int CellCountY,
+			float mazeWidthPixels, float mazeHeightPixels,
+			int wallWidth, int wallHeight,
+			float metersToPixelsX, float metersToPixelsY, float BallSize) {
+		this.CellCountX = CellCountX;
+		this.CellCountY = CellCountY;
+		this.mazeWidthPixels = mazeWidthPixels;
+		this.mazeHeightPixels = mazeHeightPixels;
+		this.wallWidth = wallWidth;
+		this.wallHeight = wallHeight;
+		boxHeight = ((mazeHeightPixels-wallHeight) / CellCountY)-wallHeight;
+		boxWidth = (mazeWidthPixels - wallWidth) / CellCountX - wallWidth;
+		sBallDiameter = Math.min(boxHeight/metersToPixelsY,boxWidth/metersToPixelsX)*BallSize;
+		sBallDiameter2 = sBallDiameter * sBallDiameter;
+		// the ball bitmap is scaled to this size
+		ballHeight = (int) (sBallDiameter * metersToPixelsY + .5f);
+		ballWidth = (int) (sBallDiameter * metersToPixelsX + .5f);
+		xc = (mazeWidthPixels - ballWidth) * 0.5f;
+		yc = (mazeHeightPixels - ballHeight) * 0.5f;
+		mHorizontalBound = (((mazeWidthPixels-2*wallWidth)/ metersToPixelsX - sBallDiameter) * 0.5f);
+		mVerticalBound = (((mazeHeightPixels-2*wallHeight) / metersToPixelsY - sBallDiameter) * 0.5f);
+		xs = metersToPixelsX;
+		ys = metersToPixelsY;
+		cellWidth = (mazeWidthPixels - wallWidth) / CellCountX / metersToPixelsX;
+		cellHeight = (mazeHeightPixels - wallHeight) / CellCountY / metersToPixelsY;
+		mazeLeft = -CellCountX * cellWidth * 0.5f;
+		mazeTop = CellCountY * cellHeight * 0.5f;
+		wallRadiusX = sBallDiameter * 0.5f + wallWidth * 0.5f / metersToPixelsX;
+		wallRadiusY = sBallDiameter * 0.5f + wallHeight * 0.5f / metersToPixelsY;
+	}
+
+	public int getBoxXFromMeter(float i) {return (int) (i *xs / (mazeWidthPixels/CellCountX));}
+	public int getBoxYFromMeter(float i) {return (int) (i *ys/ (mazeHeightPixels/CellCountY));}
+	public int getBoxXFromPixel(float i) {return (int) (i / (mazeWidthPixels/CellCountX));}
+	public int getBoxYFromPixel(float i) {return (int) (i / (mazeHeightPixels/CellCountY));}
+
+	// the Box a ball centered at x or y is in, balls outside are in the nearest one
+	public int getBoxXFromPosition(float x) {
+		return Math.min(Math.max((int) Math.floor((x - mazeLeft) / cellWidth), 0), CellCountX - 1);
+	}
+	public int getBoxYFromPosition(float y) {
+		return Math.min(Math.max((int) Math.floor((mazeTop - y) / cellHeight), 0), CellCountY - 1);
+	}
+	public float getBoxLeft(int x) {return mazeLeft + x * cellWidth;}
+	public float getBoxTop(int y) {return mazeTop - y * cellHeight;}
+}
@@ -0,0 +1,85 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * The maze's walls as the ball physics sees them, worked out in meters
+ * once per maze so moving a ball past them is table lookups with no
+ * divisions. Box (x, y) is entry x * CellCountY + y.
+ *
+ * xmin, xmax, ymin and ymax are how far a ball's center can go in the
+ * Box: the Box's edge on an open side, wallRadiusX/Y short of the wall
+ * on a closed one. open has the Maze's bit for each open side and posts
+ * a bit per corner where two open sides meet at the end of a wall, which
+ * a ball has to be kept clear of.
+ */
+public class MazeWalls {
+	// corner k is on the left if bit 0 of k is clear and at the top if bit 1 is
+	public static final int TOP_LEFT = 1;
+	public static final int TOP_RIGHT = 2;
+	public static final int BOTTOM_LEFT = 4;
+	public static final int BOTTOM_RIGHT = 8;
+
+	public final int CellCountX;
+	public final int CellCountY;
+	public final float[] xmin;
+	public final float[] xmax;
+	public final float[] ymin;
+	public final float[] ymax;
+	public final byte[] open;
+	public final byte[] posts;
+	public final float wallRadiusX;
+	public final float wallRadiusY;
+	// Boxes per meter, for bounding how many a move can cross
+	public final float perMeterX;
+	public final float perMeterY;
+
+	public MazeWalls(Maze maze, MazeGeometry geometry) {
+		final int cx = geometry.CellCountX;
+		final int cy = geometry.CellCountY;
+		final float rx = geometry.wallRadiusX;
+		final float ry = geometry.wallRadiusY;
+		CellCountX = cx;
+		CellCountY = cy;
+		xmin = new float[cx * cy];
+		xmax = new float[cx * cy];
+		ymin = new float[cx * cy];
+		ymax = new float[cx * cy];
+		open = new byte[cx * cy];
+		posts = new byte[cx * cy];
+		wallRadiusX = rx;
+		wallRadiusY = ry;
+		perMeterX = 1 / geometry.cellWidth;
+		perMeterY = 1 / geometry.cellHeight;
+
+		for (int x = 0; x < cx; x++) {
+			final float left = geometry.getBoxLeft(x);
+			final float right = geometry.getBoxLeft(x + 1);
+			for (int y = 0; y < cy; y++) {
+				final float top = geometry.getBoxTop(y);
+				final float bottom = geometry.getBoxTop(y + 1);
+				final int c = x * cy + y;
+				final int sides = maze.cells[c] & Maze.SIDES;
+				int corners = 0;
+				if ((sides & (Maze.LEFT | Maze.UP)) == (Maze.LEFT | Maze.UP) && hasPost(maze, x, y)) {corners |= TOP_LEFT;}
+				if ((sides & (Maze.RIGHT | Maze.UP)) == (Maze.RIGHT | Maze.UP) && hasPost(maze, x + 1, y)) {corners |= TOP_RIGHT;}
+				if ((sides & (Maze.LEFT | Maze.DOWN)) == (Maze.LEFT | Maze.DOWN) && hasPost(maze, x, y + 1)) {corners |= BOTTOM_LEFT;}
+				if ((sides & (Maze.RIGHT | Maze.DOWN)) == (Maze.RIGHT | Maze.DOWN) && hasPost(maze, x + 1, y + 1)) {corners |= BOTTOM_RIGHT;}
+				xmin[c] = (sides & Maze.LEFT) != 0 ? left : left + rx;
+				xmax[c] = (sides & Maze.RIGHT) != 0 ? right : right - rx;
+				ymax[c] = (sides & Maze.UP) != 0 ? top : top - ry;
+				ymin[c] = (sides & Maze.DOWN) != 0 ? bottom : bottom + ry;
+				open[c] = (byte) sides;
+				posts[c] = (byte) corners;
+			}
+		}
+	}
+
+	/*
+	 * Whether a wall ends at Box (x, y)'s top left corner. Only an inner
+	 * corner with all four walls around it open has none.
+	 */
+	private static boolean hasPost(Maze maze, int x, int y) {
+		if (x == 0 || y == 0 || x == maze.CellCountX || y == maze.CellCountY) {return true;}
+		return !maze.isOpen(x - 1, y - 1, Maze.RIGHT) || !maze.isOpen(x - 1, y - 1, Maze.DOWN)
+				|| !maze.isOpen(x - 1, y, Maze.RIGHT) || !maze.isOpen(x, y - 1, Maze.DOWN);
+	}
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package edu.ksu.cis.android.project3.core;
+
+import java.util.Arrays;
+
+/*
+ * Each of our particle holds its previous and current position, its
+ * acceleration. for added realism each particle has its own friction
+ * coefficient. The particles are stored column by column, one
+ * primitive array per field, so the integrator and the collision pass
+ * walk memory sequentially instead of chasing a pointer per ball.
+ * Particle i is the i-th entry of every column.
+ *
+ * A ball in play is awake or asleep. A sleeping ball is at rest and left
+ * out of the integrator and the collision pass until something wakes it.
+ */
+public class ParticleStore {
+	private MazeGeometry mGeometry;
+	private MazeWalls mWalls;
+	public final int count;
+	public final float[] mPosX;
+	public final float[] mPosY;
+	public final float[] mAccelX;
+	public final float[] mAccelY;
+	public final float[] mLastPosX;
+	public final float[] mLastPosY;
+	public final float[] mOneMinusFriction;
+	public final int[] mBoxX;
+	public final int[] mBoxY;
+	// each ball's Verlet step, between integrate's two passes
+	final float[] mStepX;
+	final float[] mStepY;
+	// one bit per ball
+	private final long[] mEnabled;
+	private final long[] mAwake;
+	// steps in a row each ball has stayed near (mRestX, mRestY) for
+	public final int[] mStill;
+	public final float[] mRestX;
+	public final float[] mRestY;
+
+	public ParticleStore(int count, MazeGeometry geometry, MazeWalls walls, float sFriction, Rng random) {
+		mGeometry = geometry;
+		mWalls = walls;
+		this.count = count;
+		mPosX = new float[count];
+		mPosY = new float[count];
+		mAccelX = new float[count];
+		mAccelY = new float[count];
+		mLastPosX = new float[count];
+		mLastPosY = new float[count];
+		mOneMinusFriction = new float[count];
+		mBoxX = new int[count];
+		mBoxY = new int[count];
+		mStepX = new float[count];
+		mStepY = new float[count];
+		mEnabled = new long[(count + 63) >> 6];
+		mAwake = new long[(count + 63) >> 6];
+		mStill = new int[count];
+		mRestX = new float[count];
+		mRestY = new float[count];
+		for (int i = 0; i < count; i++) {
+			// make each particle a bit different by randomizing its
+			// coefficient of friction
+			final float r = (random.nextFloat() - 0.5f) * 0.2f;
+			mOneMinusFriction[i] = 1f - sFriction + r;
+		}
+		start();
+	}
+
+	/*
+	 * Moves every ball to a different maze, back at its start and in play.
+	 * Only while nothing else is using the balls.
+	 */
+	public void setLevel(MazeGeometry geometry, MazeWalls walls) {
+		mGeometry = geometry;
+		mWalls = walls;
+		start();
+	}
+
+	private void start() {
+		final MazeGeometry geometry = mGeometry;
+		for (int i = 0; i < count; i++) {
+			//Start particles out directly outside 0,0
+			mPosX[i] = -geometry.mHorizontalBound;
+			mPosY[i] = geometry.mVerticalBound;
+			mLastPosX[i] = -geometry.mHorizontalBound;
+			mLastPosY[i] = geometry.mVerticalBound;
+			mBoxX[i] = 0;
+			mBoxY[i] = 0;
+			setEnabled(i, true);
+		}
+	}
+
+	// puts ball i at rest at (x, y)
+	public void place(int i, float x, float y) {
+		mPosX[i] = x;
+		mPosY[i] = y;
+		mLastPosX[i] = x;
+		mLastPosY[i] = y;
+		mBoxX[i] = mGeometry.getBoxXFromPosition(x);
+		mBoxY[i] = mGeometry.getBoxYFromPosition(y);
+		wake(i);
+	}
+
+	public boolean isEnabled(int i) {return (mEnabled[i >> 6] & (1L << i)) != 0;}
+	// a ball put in play is awake
+	public void setEnabled(int i, boolean enabled) {
+		if(enabled){mEnabled[i >> 6] |= 1L << i; wake(i);}
+		else{mEnabled[i >> 6] &= ~(1L << i);}
+	}
+
+	public boolean isAwake(int i) {return (mAwake[i >> 6] & (1L << i)) != 0;}
+	public void wake(int i) {
+		mAwake[i >> 6] |= 1L << i;
+		mStill[i] = 0;
+	}
+
+	// stops ball i dead where it is and leaves it out until woken
+	public void sleep(int i) {
+		mAwake[i >> 6] &= ~(1L << i);
+		mLastPosX[i] = mPosX[i];
+		mLastPosY[i] = mPosY[i];
+	}
+
+	public void wakeAll() {
+		for (int w = 0; w < mAwake.length; w++) {mAwake[w] = -1L;}
+		Arrays.fill(mStill, 0);
+	}
+
+	public boolean anyAsleep() {
+		for (int w = 0; w < mEnabled.length; w++) {
+			if ((mEnabled[w] & ~mAwake[w]) != 0) {return true;}
+		}
+		return false;
+	}
+
+	// the first ball at or after i that is in play and awake, or -1
+	public int nextAwake(int i) {
+		if (i >= count) {return -1;}
+		int w = i >> 6;
+		long bits = mEnabled[w] & mAwake[w] & (-1L << i);
+		while (bits == 0) {
+			if (++w == mEnabled.length) {return -1;}
+			bits = mEnabled[w] & mAwake[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/*
+	 * Returns the first enabled ball at or after i, or -1 if there is
+	 * none. Skips 64 disabled balls at a time.
+	 */
+	public int nextEnabled(int i) {
+		if (i >= count) {return -1;}
+		int w = i >> 6;
+		long bits = mEnabled[w] & (-1L << i);
+		while (bits == 0) {
+			if (++w == mEnabled.length) {return -1;}
+			bits = mEnabled[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	public void copyEnabled(long[] into) {System.arraycopy(mEnabled, 0, into, 0, mEnabled.length);}
+
+	public boolean anyEnabled() {
+		for (int w = 0; w < mEnabled.length; w++) {
+			if (mEnabled[w] != 0) {return true;}
+		}
+		return false;
+	}
+
+	/*
+	 * The same Verlet step as computePhysics, but the ball is swept to its
+	 * new position through the maze instead of jumping there, so however
+	 * fast it goes it never ends a step on the far side of a wall. The
+	 * mass cancels out of the acceleration so it is left out.
+	 */
+	public void computePhysics2(int i, float sx, float sy, float dT, float dTC) {
+		// Force of gravity applied to our virtual object
+		final float ax = -sx;
+		final float ay = -sy;
+		final float dTdT = dT * dT;
+		final float x = mPosX[i];
+		final float y = mPosY[i];
+		final float dx = mOneMinusFriction[i] * dTC	* (x - mLastPosX[i]) + mAccelX[i] * dTdT;
+		final float dy = mOneMinusFriction[i] * dTC	* (y - mLastPosY[i]) + mAccelY[i] * dTdT;
+		mLastPosX[i] = x;
+		mLastPosY[i] = y;
+		move(i, x, y, dx, dy);
+		mAccelX[i] = ax;
+		mAccelY[i] = ay;
+	}
+
+	/*
+	 * computePhysics2 for every ball in play and awake, with the same
+	 * result to the bit. For each run of such balls next to each other,
+	 * verlet takes the Verlet step of the whole run, then each ball is
+	 * swept through the maze.
+	 */
+	public void integrate(float sx, float sy, float dT, float dTC) {
+		final float ax = -sx;
+		final float ay = -sy;
+		final float dTdT = dT * dT;
+		for (int w = 0; w < mEnabled.length; w++) {
+			long bits = mEnabled[w] & mAwake[w];
+			while (bits != 0) {
+				final int low = Long.numberOfTrailingZeros(bits);
+				final long gaps = ~bits & (-1L << low);
+				final int high = gaps == 0 ? 64 : Long.numberOfTrailingZeros(gaps);
+				final int from = (w << 6) + low;
+				final int end = (w << 6) + high;
+				verlet(from, end, ax, ay, dTdT, dTC);
+				for (int i = from; i < end; i++) {
+					move(i, mLastPosX[i], mLastPosY[i], mStepX[i], mStepY[i]);
+				}
+				bits = high == 64 ? 0 : bits & (-1L << high);
+			}
+		}
+	}
+
+	/*
+	 * The Verlet step of computePhysics2 for balls from to end - 1, left
+	 * in mStepX/Y. One loop over the columns with no branches and no
+	 * calls, which the JIT can unroll and vectorize. The arithmetic is
+	 * computePhysics2's in the same order, so it rounds the same.
+	 */
+	void verlet(int from, int end, float ax, float ay, float dTdT, float dTC) {
+		final float[] posX = mPosX;
+		final float[] posY = mPosY;
+		final float[] lastX = mLastPosX;
+		final float[] lastY = mLastPosY;
+		final float[] accelX = mAccelX;
+		final float[] accelY = mAccelY;
+		final float[] friction = mOneMinusFriction;
+		final float[] stepX = mStepX;
+		final float[] stepY = mStepY;
+		for (int i = from; i < end; i++) {
+			final float x = posX[i];
+			final float y = posY[i];
+			stepX[i] = friction[i] * dTC * (x - lastX[i]) + accelX[i] * dTdT;
+			stepY[i] = friction[i] * dTC * (y - lastY[i]) + accelY[i] * dTdT;
+			lastX[i] = x;
+			lastY[i] = y;
+			accelX[i] = ax;
+			accelY[i] = ay;
+		}
+	}
+
+	/*
+	 * Puts a ball another ball pushed into a wall back in the maze. The
+	 * push is swept from the nearest point of the Box the ball was in, so
+	 * a push through a wall stops at the wall and a push through a passage
+	 * takes the ball into the next Box.
+	 */
+	public void resolveCollisionWithWalls(int i) {
+		final MazeWalls w = mWalls;
+		final int c = mBoxX[i] * w.CellCountY + mBoxY[i];
+		final int open = w.open[c];
+		// the Box's edges, a wall radius past the limits on closed sides
+		final float left = (open & Maze.LEFT) != 0 ? w.xmin[c] : w.xmin[c] - w.wallRadiusX;
+		final float right = (open & Maze.RIGHT) != 0 ? w.xmax[c] : w.xmax[c] + w.wallRadiusX;
+		final float top = (open & Maze.UP) != 0 ? w.ymax[c] : w.ymax[c] + w.wallRadiusY;
+		final float bottom = (open & Maze.DOWN) != 0 ? w.ymin[c] : w.ymin[c] - w.wallRadiusY;
+		final float x = mPosX[i];
+		final float y = mPosY[i];
+		final float x0 = Math.min(Math.max(x, left), right);
+		final float y0 = Math.min(Math.max(y, bottom), top);
+		move(i, x0, y0, x - x0, y - y0);
+	}
+
+	/*
+	 * Moves ball i's center from (x, y), which is in its Box (mBoxX[i],
+	 * mBoxY[i]), by (dx, dy), one Box at a time. Each leg ends where the
+	 * path leaves the Box: through a passage the ball carries on in the
+	 * next Box, at a wall it stops against the wall, keeps the motion
+	 * along it and loses its speed into it. That is one leg per Box
+	 * crossed, however far the ball goes.
+	 */
+	void move(int i, float x, float y, float dx, float dy) {
+		final MazeWalls w = mWalls;
+		final int rows = w.CellCountY;
+		int bx = mBoxX[i];
+		int by = mBoxY[i];
+		int c = bx * rows + by;
+		boolean hitX = false;
+		boolean hitY = false;
+		// every leg but the last crosses into another Box or stops at a wall
+		int legs = (int) (Math.abs(dx) * w.perMeterX) + (int) (Math.abs(dy) * w.perMeterY) + 4;
+		while (legs-- > 0) {
+			final int open = w.open[c];
+			final float xmin = w.xmin[c];
+			final float xmax = w.xmax[c];
+			final float ymin = w.ymin[c];
+			final float ymax = w.ymax[c];
+			// a ball can start a leg inside a wall, pushed there by another
+			// ball or by coming in next to a corner
+			if (x < xmin) {hitX |= (open & Maze.LEFT) == 0; x = xmin;}
+			else if (x > xmax) {hitX |= (open & Maze.RIGHT) == 0; x = xmax;}
+			if (y < ymin) {hitY |= (open & Maze.DOWN) == 0; y = ymin;}
+			else if (y > ymax) {hitY |= (open & Maze.UP) == 0; y = ymax;}
+
+			float tx = 1;
+			if (dx > 0) {tx = (xmax - x) / dx;}
+			else if (dx < 0) {tx = (xmin - x) / dx;}
+			float ty = 1;
+			if (dy > 0) {ty = (ymax - y) / dy;}
+			else if (dy < 0) {ty = (ymin - y) / dy;}
+			if (tx >= 1 && ty >= 1) {
+				x += dx;
+				y += dy;
+				break;
+			}
+			if (tx <= ty) {
+				final boolean right = dx > 0;
+				x = right ? xmax : xmin;
+				y += dy * tx;
+				dy -= dy * tx;
+				if ((open & (right ? Maze.RIGHT : Maze.LEFT)) != 0) {
+					dx -= dx * tx;
+					bx += right ? 1 : -1;
+					c += right ? rows : -rows;
+				} else {
+					dx = 0;
+					hitX = true;
+				}
+			} else {
+				final boolean up = dy > 0;
+				y = up ? ymax : ymin;
+				x += dx * ty;
+				dx -= dx * ty;
+				if ((open & (up ? Maze.UP : Maze.DOWN)) != 0) {
+					dy -= dy * ty;
+					by += up ? -1 : 1;
+					c += up ? -1 : 1;
+				} else {
+					dy = 0;
+					hitY = true;
+				}
+			}
+		}
+
+		/*
+		 * Where two open sides of the Box meet there can still be the end
+		 * of a wall, keep the ball that far from it.
+		 */
+		final int posts = w.posts[c];
+		if (posts != 0) {
+			final float rx = w.wallRadiusX;
+			final float ry = w.wallRadiusY;
+			for (int k = 0; k < 4; k++) {
+				if ((posts & (1 << k)) == 0) {continue;}
+				final float px = (k & 1) == 0 ? w.xmin[c] : w.xmax[c];
+				final float py = (k & 2) == 0 ? w.ymax[c] : w.ymin[c];
+				final float ex = (x - px) / rx;
+				final float ey = (y - py) / ry;
+				final float dd = ex * ex + ey * ey;
+				if (dd >= 1 || dd == 0) {continue;}
+				final float s = 1 / (float) Math.sqrt(dd);
+				x = px + (x - px) * s;
+				y = py + (y - py) * s;
+			}
+		}
+
+		mPosX[i] = x;
+		mPosY[i] = y;
+		if (hitX) {mLastPosX[i] = x;}
+		if (hitY) {mLastPosY[i] = y;}
+		mBoxX[i] = bx;
+		mBoxY[i] = by;
+	}
+
+	public void computePhysics(int i, float sx, float sy, float dT, float dTC) {
+		/*
+		 * Force of gravity applied to our virtual object. The mass
+		 * cancels out of A = F / m with F = m g, so it is left out.
+		 */
+		final float ax = -sx;
+		final float ay = -sy;
+
+		/*
+		 * Time-corrected Verlet integration The position Verlet
+		 * integrator is defined as x(t+t) = x(t) + x(t) - x(t-t) +
+		 * a(t)t2 However, the above equation doesn't handle variable
+		 * t very well, a time-corrected version is needed: x(t+t) =
+		 * x(t) + (x(t) - x(t-t)) * (t/t_prev) + a(t)t2 We also add
+		 * a simple friction term (f) to the equation: x(t+t) = x(t) +
+		 * (1-f) * (x(t) - x(t-t)) * (t/t_prev) + a(t)t2
+		 */
+		final float dTdT = dT * dT;
+		final float x = mPosX[i] + mOneMinusFriction[i] * dTC	* (mPosX[i] - mLastPosX[i]) + mAccelX[i] * dTdT;
+		final float y = mPosY[i] + mOneMinusFriction[i] * dTC	* (mPosY[i] - mLastPosY[i]) + mAccelY[i] * dTdT;
+		mLastPosX[i] = mPosX[i];
+		mLastPosY[i] = mPosY[i];
+		mPosX[i] = x;
+		mPosY[i] = y;
+		mAccelX[i] = ax;
+		mAccelY[i] = ay;
+	}
+
+	public void resolveCollisionWithBoundsClassic(int i) {
+		final float xmax = mGeometry.mHorizontalBound;
+		final float ymax = mGeometry.mVerticalBound;
+		final float x = mPosX[i];
+		final float y = mPosY[i];
+		if (x > xmax) {
+			mPosX[i] = xmax;
+		} else if (x < -xmax) {
+			mPosX[i] = -xmax;
+		}
+		if (y > ymax) {
+			mPosY[i] = ymax;
+		} else if (y < -ymax) {
+			mPosY[i] = -ymax;
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A particle system is just a collection of particles
+ */
+public class ParticleSystem {
+	/*
+	 * Told when a level ends. Called on whichever thread runs update, at
+	 * most once per level since the system pauses itself first.
+	 */
+	public interface Listener {
+		void onAllTrapped();
+		void onGoalReached();
+	}
+
+	// We do no more than a limited number of iterations
+	public static final int NUM_MAX_ITERATIONS = 10;
+	// from this many balls on the collision pass is split over every core
+	public static final int STRIPED_MIN_BALLS = 256;
+	// how far, in meters, collide can nudge two touching balls off line
+	static final float ENTROPY = 0.0001f;
+	// how far, in ball diameters, a ball can wander and still be at rest
+	static final float REST_RADIUS = 0.25f;
+	// steps in a row a ball has to be at rest for to fall asleep
+	static final int SLEEP_STEPS = 30;
+	// how far, in m/s^2, the tilt can get from where it was when balls fell asleep before they wake
+	static final float WAKE_TILT = 0.3f;
+
+	private MazeGeometry mGeometry;
+	private Maze mMaze;
+	private final ParticleStore mBalls;
+	private final BroadPhase mBroadPhase;
+	private final StripeSolver mStripes;
+	// counts collision iterations, so every one jitters differently
+	private int mRound;
+	private final int mJitterSeed;
+	private Listener mListener;
+	private FrameMetrics mMetrics;
+	// the last collision pass's iterations and the contacts it found
+	int mIterations;
+	int mContacts;
+	private volatile boolean pause;
+	private long mLastT;
+	private float mLastDeltaT;
+	// the tilt the sleeping balls fell asleep under
+	private float mSleepTiltX;
+	private float mSleepTiltY;
+
+	/*
+	 * random draws the balls' frictions and seeds their collisions'
+	 * jitter, so the same seed and the same tilt always play out the
+	 * same.
+	 */
+	public ParticleSystem(int count, MazeGeometry geometry, Maze maze, float sFriction, Rng random) {
+		mGeometry = geometry;
+		mMaze = maze;
+		/*
+		 * Initially our particles have no speed or acceleration
+		 */
+		mBalls = new ParticleStore(count, geometry, new MazeWalls(maze, geometry), sFriction, random);
+		mJitterSeed = random.nextInt();
+		mBroadPhase = new BroadPhase(this, mBalls, geometry);
+		mStripes = count >= STRIPED_MIN_BALLS ? new StripeSolver(this, mBalls, geometry, SolverPool.shared()) : null;
+	}
+
+	/*
+	 * Moves the balls to another maze, all back at the start and in play,
+	 * keeping the balls' and the broadphase's buffers. Only while nothing
+	 * is running update.
+	 */
+	public void setLevel(MazeGeometry geometry, Maze maze) {
+		mGeometry = geometry;
+		mMaze = maze;
+		mBalls.setLevel(geometry, new MazeWalls(maze, geometry));
+		mBroadPhase.setGeometry(geometry);
+		if (mStripes != null) {mStripes.setGeometry(geometry);}
+		mLastT = 0;
+		mLastDeltaT = 0;
+	}
+
+	/*
+	 * Clears the traps under the balls and puts every ball back in play,
+	 * for when the level is played again. Returns whether a trap was
+	 * cleared. Only while nothing is running update.
+	 */
+	public boolean release() {
+		final ParticleStore balls = mBalls;
+		boolean cleared = false;
+		for (int i = 0; i < balls.count; i++) {
+			final int x = balls.mBoxX[i];
+			final int y = balls.mBoxY[i];
+			if (mMaze.isTrap(x, y)) {
+				mMaze.setTrap(x, y, false);
+				cleared = true;
+			}
+			balls.setEnabled(i, true);
+		}
+		pause = false;
+		return cleared;
+	}
+
+	public void setListener(Listener listener) {mListener = listener;}
+	// only while nothing is running update, null to stop recording
+	public void setMetrics(FrameMetrics metrics) {mMetrics = metrics;}
+	// for the StripeSolver, which counts its own iterations
+	void nextRound() {mRound++;}
+	public void setPaused(boolean paused) {pause = paused;}
+	public boolean isPaused() {return pause;}
+	public ParticleStore getParticles() {return mBalls;}
+
+	/*
+	 * Update the position of each particle in the system using the
+	 * Verlet integrator.
+	 */
+	private void updatePositions(float sx, float sy, long timestamp) {
+		final long t = timestamp;
+		if (mLastT != 0) {
+			final float dT = (float) (t - mLastT) * (1.0f / 1000000000.0f);
+			if (mLastDeltaT != 0) {
+				final float dTC = dT / mLastDeltaT;
+				if (!pause) {mBalls.integrate(sx, sy, dT, dTC);}
+			}
+			mLastDeltaT = dT;
+		}
+		mLastT = t;
+	}
+
+	/*
+	 * Performs one iteration of the simulation. First updating the
+	 * position of all the particles and resolving the constraints and
+	 * collisions. sx and sy are the acceleration measured by the sensor
+	 * and now is the time of the step in nanoseconds.
+	 */
+	public void update(float sx, float sy, long now) {
+		final ParticleStore balls = mBalls;
+		if ((Math.abs(sx - mSleepTiltX) > WAKE_TILT || Math.abs(sy - mSleepTiltY) > WAKE_TILT)
+				&& balls.anyAsleep()) {
+			balls.wakeAll();
+		}
+		final FrameMetrics metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		// update the system's positions
+		updatePositions(sx, sy, now);
+		final long integrated = metrics != null ? System.nanoTime() : 0;
+		resolveCollisions();
+		final long resolved = metrics != null ? System.nanoTime() : 0;
+		settle(sx, sy);
+		if (metrics != null) {
+			metrics.step(System.nanoTime() - start, integrated - start, resolved - integrated, mIterations, mContacts);
+		}
+	}
+
+	/*
+	 * Puts every awake ball that has stayed within REST_RADIUS, and never
+	 * less than ENTROPY, of where it was SLEEP_STEPS ago to sleep. Balls
+	 * in a pile jiggle a little every step as they push each other apart,
+	 * by up to about ENTROPY, so it is how far a ball gets rather than
+	 * how far it moves in a step that tells whether it is at rest. A pile
+	 * held against a wall by the tilt then costs next to nothing until
+	 * the tilt changes by WAKE_TILT or an awake ball runs into it.
+	 */
+	private void settle(float sx, float sy) {
+		final ParticleStore balls = mBalls;
+		final float radius = Math.max(REST_RADIUS * mGeometry.sBallDiameter, ENTROPY);
+		final float radius2 = radius * radius;
+		boolean first = !balls.anyAsleep();
+		for (int i = balls.nextAwake(0); i >= 0; i = balls.nextAwake(i + 1)) {
+			final float dx = balls.mPosX[i] - balls.mRestX[i];
+			final float dy = balls.mPosY[i] - balls.mRestY[i];
+			if (balls.mStill[i] == 0 || dx * dx + dy * dy > radius2) {
+				balls.mRestX[i] = balls.mPosX[i];
+				balls.mRestY[i] = balls.mPosY[i];
+				balls.mStill[i] = 1;
+			} else if (++balls.mStill[i] >= SLEEP_STEPS) {
+				if (first) {
+					mSleepTiltX = sx;
+					mSleepTiltY = sy;
+					first = false;
+				}
+				balls.sleep(i);
+			}
+		}
+	}
+
+	/*
+	 * The constraint half of update.
+	 */
+	void resolveCollisions() {
+		if (mStripes != null) {
+			mStripes.solve();
+			return;
+		}
+		/*
+		 * Resolve collisions, each particle is tested against the
+		 * particles in its own and the neighbouring cells of the
+		 * broadphase grid. If a collision is detected the particle is
+		 * moved away using a virtual spring of infinite stiffness.
+		 * Sleeping particles are only tested against the awake ones.
+		 * One that is moving wakes them, one at rest is pushed off them
+		 * like off a wall.
+		 */
+		final BroadPhase grid = mBroadPhase;
+		grid.rebuild();
+		final ParticleStore balls = mBalls;
+		int iterations = 0;
+		int contacts = 0;
+		boolean more = true;
+		for (; iterations < NUM_MAX_ITERATIONS && more; iterations++) {
+			more = false;
+			mRound++;
+			for (int i = balls.nextAwake(0); i >= 0; i = balls.nextAwake(i + 1)) {
+				final int found = grid.collide(i);
+				contacts += found;
+				more |= found > 0;
+				/*
+				 * Finally make sure the particle doesn't intersects
+				 * with the walls.
+				 */
+				resolveCollisionWithBounds(i);
+				grid.move(i);
+			}
+		}
+		mIterations = iterations;
+		mContacts = contacts;
+	}
+
+	/*
+	 * Tests two balls for contact and pushes them apart if they
+	 * overlap, or only pushes i if j is to stay put. Returns true if
+	 * they were touching.
+	 */
+	boolean collide(int i, int j, boolean bothMove) {
+		final float[] posX = mBalls.mPosX;
+		final float[] posY = mBalls.mPosY;
+		final float sBallDiameter = mGeometry.sBallDiameter;
+		float dx = posX[j] - posX[i];
+		float dy = posY[j] - posY[i];
+		float dd = dx * dx + dy * dy;
+		// Check for collisions
+		if (dd > mGeometry.sBallDiameter2) {return false;}
+		/*
+		 * add a little bit of entropy, after nothing is
+		 * perfect in the universe. It is hashed from the seed, the
+		 * pair and the round rather than drawn, so a run is the same
+		 * every time, however many threads resolve it.
+		 */
+		int h = i * 0x9E3779B1 + j * 0x85EBCA77 + mRound * 0xC2B2AE3D + mJitterSeed;
+		h ^= h >>> 15;
+		h *= 0x2C1B3C6D;
+		h ^= h >>> 12;
+		h *= 0x297A2D39;
+		h ^= h >>> 15;
+		dx += ((h >>> 16) * (1f / 65536) - 0.5f) * ENTROPY;
+		dy += ((h & 0xffff) * (1f / 65536) - 0.5f) * ENTROPY;
+		dd = dx * dx + dy * dy;
+		// simulate the spring
+		final float d = (float) Math.sqrt(dd);
+		if (!bothMove) {
+			final float c = (sBallDiameter - d) / d;
+			posX[i] -= dx * c;
+			posY[i] -= dy * c;
+			return true;
+		}
+		final float c = (0.5f * (sBallDiameter - d)) / d;
+		posX[i] -= dx * c;
+		posY[i] -= dy * c;
+		posX[j] += dx * c;
+		posY[j] += dy * c;
+		return true;
+	}
+
+	/*
+	 * Resolving constraints and collisions with the Verlet integrator
+	 * can be very simple, we simply need to move a colliding or
+	 * constrained particle in such way that the constraint is
+	 * satisfied.
+	 */
+	public void resolveCollisionWithBounds(int i) {
+		final ParticleStore balls = mBalls;
+		if(!balls.isEnabled(i)){return;}
+		balls.resolveCollisionWithWalls(i);
+		checkBox(i);
+	}
+
+	// takes ball i out if it is on a trap and ends the level if it is on the goal
+	void checkBox(int i) {
+		final ParticleStore balls = mBalls;
+		final int box = mMaze.cells[mMaze.index(balls.mBoxX[i], balls.mBoxY[i])];
+		if((box & Maze.TRAP) != 0){
+			balls.setEnabled(i, false);
+			if(!pause && !balls.anyEnabled()){
+				pause = true;
+				if(mListener != null){mListener.onAllTrapped();}
+			}
+		}
+		if((box & Maze.GOAL) != 0){
+			if(!pause){
+				pause = true;
+				if(mListener != null){mListener.onGoalReached();}
+			}
+		}
+	}
+
+	/*
+	 * Whether every ball in play is asleep, or the system is paused. Only
+	 * on the thread running update.
+	 */
+	public boolean isAtRest() {return pause || mBalls.nextAwake(0) < 0;}
+
+	public int getParticleCount() {return mBalls.count;}
+	public float getPosX(int i) {return mBalls.mPosX[i];}
+	public float getPosY(int i) {return mBalls.mPosY[i];}
+	public int getBoxX(int i) {return mBalls.mBoxX[i];}
+	public int getBoxY(int i) {return mBalls.mBoxY[i];}
+}
@@ -0,0 +1,216 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Plays a log a ReplayRecorder wrote back through the same SimulationLoop
+ * steps and ParticleSystem.update the game took, as fast as it can, and
+ * prints how long each step took. The steps, the levels and the balls are
+ * the same every time, so a slow stretch a player ran into can be timed
+ * again on a desktop JVM, profiled, and compared across builds:
+ *
+ *   javac -d out src/edu/ksu/cis/android/project3/core/*.java
+ *   java -cp out edu.ksu.cis.android.project3.core.ReplayPlayer replay.mrl
+ *
+ * Options, all optional:
+ *   -runs N       plays the log N times and keeps each step's fastest (1)
+ *   -slowest N    lists the N slowest steps (5)
+ *   -metrics      prints the steps' FrameMetrics too, over every run
+ *
+ * Each checkpoint in the log is checked against where the balls are in
+ * the replay. If one differs, the replay went another way than the game,
+ * its timings are of other work, and the player exits with 1.
+ */
+public class ReplayPlayer {
+	public static void main(String[] args) {
+		int runs = 1;
+		int slowest = 5;
+		String path = null;
+		FrameMetrics metrics = null;
+		try {
+			for (int a = 0; a < args.length; a++) {
+				String arg = args[a];
+				if (arg.equals("-runs")) {runs = Math.max(Integer.parseInt(args[++a]), 1);}
+				else if (arg.equals("-slowest")) {slowest = Integer.parseInt(args[++a]);}
+				else if (arg.equals("-metrics")) {metrics = new FrameMetrics();}
+				else if (path == null && !arg.startsWith("-")) {path = arg;}
+				else {throw new IllegalArgumentException("unknown option " + arg);}
+			}
+			if (path == null) {throw new IllegalArgumentException("no log given");}
+		} catch (RuntimeException e) {
+			System.err.println("ReplayPlayer: " + e.getMessage());
+			System.err.println("usage: ReplayPlayer [-runs N] [-slowest N] [-metrics] log");
+			System.exit(2);
+			return;
+		}
+
+		final byte[] log;
+		ReplayPlayer best = null;
+		try {
+			log = read(new File(path));
+			for (int r = 0; r < runs; r++) {
+				ReplayPlayer run = new ReplayPlayer(metrics);
+				run.play(log);
+				if (best == null) {best = run;}
+				else {
+					for (int s = 0; s < best.mSteps; s++) {best.mNanos[s] = Math.min(best.mNanos[s], run.mNanos[s]);}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("ReplayPlayer: " + path + ": " + e.getMessage());
+			System.exit(2);
+			return;
+		}
+
+		final int steps = best.mSteps;
+		final long[] sorted = Arrays.copyOf(best.mNanos, steps);
+		Arrays.sort(sorted);
+		long total = 0;
+		for (int s = 0; s < steps; s++) {total += sorted[s];}
+		System.out.println("log       " + path + ", " + log.length + " bytes, " + best.mLevels + " levels, "
+				+ best.mStarts + " starts, " + best.mSamples + " samples");
+		System.out.println("balls     " + best.mCount + ", seed " + best.mSeed);
+		if (best.mCount >= ParticleSystem.STRIPED_MIN_BALLS) {
+			System.out.println("solver    stripes on " + SolverPool.shared().threads() + " threads");
+		}
+		System.out.println("runs      " + runs + (runs > 1 ? ", each step's fastest" : ""));
+		if (steps > 0) {
+			System.out.println("step      " + steps + " steps, mean " + total / steps / 1000 + " us, 50% "
+					+ sorted[steps / 2] / 1000 + " us, 90% " + sorted[(int) (steps * 0.9)] / 1000 + " us, 99% "
+					+ sorted[(int) (steps * 0.99)] / 1000 + " us, max " + sorted[steps - 1] / 1000 + " us");
+			System.out.println("speed     " + (long) (steps / (total / 1e9)) + " steps/s, "
+					+ String.format("%.1f", steps * (double) SimulationLoop.STEP_NANOS / total) + "x real time");
+		}
+		// the slowest steps, slowest first, by picking the next slowest each time
+		final long[] nanos = best.mNanos.clone();
+		for (int n = 0; n < Math.min(slowest, steps); n++) {
+			int worst = 0;
+			for (int s = 1; s < steps; s++) {
+				if (nanos[s] > nanos[worst]) {worst = s;}
+			}
+			System.out.println("slow      step " + worst + " at " + String.format("%.3f", worst * (double) SimulationLoop.STEP_NANOS / 1e9)
+					+ " s, level " + best.mLevelOf[worst] + ": " + nanos[worst] / 1000 + " us");
+			nanos[worst] = -1;
+		}
+		if (metrics != null) {metrics.dump(System.out);}
+		System.out.println("checks    " + (best.mCheckpoints - best.mDiverged) + " of " + best.mCheckpoints + " checkpoints match");
+		if (best.mDiverged > 0) {
+			System.out.println("DIVERGED  first at step " + best.mFirstDiverged + ", the timings are of other work");
+			System.exit(1);
+		}
+	}
+
+	private final FrameMetrics mMetrics;
+	private long mSeed;
+	private int mCount;
+	private ParticleSystem mSystem;
+	private SimulationLoop mLoop;
+	private long[] mNanos = new long[1024];
+	private int[] mLevelOf = new int[1024];
+	private int mSteps;
+	private int mLevel;
+	private int mLevels;
+	private int mStarts;
+	private int mSamples;
+	private int mCheckpoints;
+	private int mDiverged;
+	private int mFirstDiverged = -1;
+
+	private ReplayPlayer(FrameMetrics metrics) {mMetrics = metrics;}
+
+	private void play(byte[] log) throws IOException {
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(log));
+		if (in.readInt() != ReplayRecorder.MAGIC) {throw new IOException("not a replay log");}
+		final int version = in.readInt();
+		if (version != ReplayRecorder.VERSION) {throw new IOException("log version " + version + ", only " + ReplayRecorder.VERSION + " can be played");}
+		mSeed = in.readLong();
+		mCount = in.readInt();
+		final float sFriction = in.readFloat();
+		final float timeConstant = in.readFloat();
+		while (in.available() > 0) {
+			final int tag = in.readByte();
+			if (tag == ReplayRecorder.SAMPLE) {
+				final long time = in.readLong();
+				final float x = in.readFloat();
+				final float y = in.readFloat();
+				if (mLoop == null) {throw new IOException("sample before the first level");}
+				if (!mLoop.replaySample(time, x, y)) {throw new IOException("more samples in a step than the loop queues");}
+				mSamples++;
+			} else if (tag == ReplayRecorder.STEP) {
+				final long start = in.readLong();
+				if (mLoop == null) {throw new IOException("step before the first level");}
+				if (mSteps == mNanos.length) {
+					mNanos = Arrays.copyOf(mNanos, mSteps * 2);
+					mLevelOf = Arrays.copyOf(mLevelOf, mSteps * 2);
+				}
+				final long before = System.nanoTime();
+				mLoop.step(start);
+				mNanos[mSteps] = System.nanoTime() - before;
+				mLevelOf[mSteps++] = mLevel;
+			} else if (tag == ReplayRecorder.LEVEL) {
+				level(in, sFriction, timeConstant);
+			} else if (tag == ReplayRecorder.START) {
+				if (mLoop == null) {throw new IOException("start before the first level");}
+				// as the game does before starting the loop
+				mSystem.release();
+				mLoop.replayStart();
+				mStarts++;
+			} else if (tag == ReplayRecorder.CHECKPOINT) {
+				final long hash = in.readLong();
+				if (mSystem == null) {throw new IOException("checkpoint before the first level");}
+				mCheckpoints++;
+				if (hash != ReplayRecorder.hash(mSystem.getParticles())) {
+					if (mDiverged++ == 0) {mFirstDiverged = mSteps;}
+				}
+			} else {
+				throw new IOException("unknown record " + tag);
+			}
+		}
+	}
+
+	private void level(DataInputStream in, float sFriction, float timeConstant) throws IOException {
+		mLevel = in.readInt();
+		final int CellCountX = in.readInt();
+		final int CellCountY = in.readInt();
+		final float mazeWidthPixels = in.readFloat();
+		final float mazeHeightPixels = in.readFloat();
+		final int wallWidth = in.readInt();
+		final int wallHeight = in.readInt();
+		final float metersToPixelsX = in.readFloat();
+		final float metersToPixelsY = in.readFloat();
+		final float BallSize = in.readFloat();
+		final byte[] cells = new byte[CellCountX * CellCountY];
+		in.readFully(cells);
+		final MazeGeometry geometry = new MazeGeometry(CellCountX, CellCountY, mazeWidthPixels, mazeHeightPixels,
+				wallWidth, wallHeight, metersToPixelsX, metersToPixelsY, BallSize);
+		final Maze maze = new Maze(CellCountX, CellCountY, cells);
+		if (mSystem == null) {
+			mSystem = new ParticleSystem(mCount, geometry, maze, sFriction, new Rng(mSeed, Rng.BALLS));
+			mSystem.setMetrics(mMetrics);
+			// a step never took more samples than the game's ring held
+			mLoop = new SimulationLoop(mSystem, new AdaptiveInput(timeConstant, false), SimulationLoop.MAX_SAMPLES);
+		} else {
+			mSystem.setLevel(geometry, maze);
+		}
+		if (in.readByte() != 0) {
+			final ParticleStore balls = mSystem.getParticles();
+			for (int i = 0; i < mCount; i++) {balls.place(i, in.readFloat(), in.readFloat());}
+		}
+		mLevels++;
+	}
+
+	private static byte[] read(File file) throws IOException {
+		final long length = file.length();
+		if (length > Integer.MAX_VALUE) {throw new IOException("too big");}
+		final byte[] bytes = new byte[(int) length];
+		final DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {in.readFully(bytes);}
+		finally {in.close();}
+		return bytes;
+	}
+}
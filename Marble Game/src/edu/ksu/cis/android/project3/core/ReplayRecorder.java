@@ -0,0 +1,169 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * Records everything a play through a SimulationLoop depends on, so that
+ * ReplayPlayer can step the same ParticleSystem through it again, off the
+ * device and as fast as it goes. The balls only ever move through
+ * ParticleSystem.update, and update only depends on the level, the seed
+ * the balls were made with and the tilt of each step, which comes from
+ * the sensor samples and the times the steps were taken at.
+ *
+ * The log is big-endian, as DataInputStream reads it. It starts with
+ * MAGIC, VERSION, the seed, the number of balls, their friction and the
+ * tilt filter's time constant, then has a record per event, each a tag
+ * byte and the fields:
+ *
+ *   LEVEL       level, the MazeGeometry's arguments, the Maze's cells,
+ *               and for a level climbed back into, where each ball was
+ *   START       the loop started, after the balls were put back in play
+ *   SAMPLE      a sample's time, on the loop's clock, and x and y, as it
+ *               was taken off the ring
+ *   STEP        the time a step started at, after it was taken
+ *   CHECKPOINT  a hash of where the balls are, to tell a replay that
+ *               went another way
+ *
+ * A level's maze is kept whole rather than as its seed, since the traps
+ * under the balls are cleared on a level climbed back into.
+ *
+ * The records go into memory, a few kilobytes a second, which is only
+ * grown, never written out, from the simulation thread. Past limit bytes
+ * the recording stops, so the log is the start of the play. level,
+ * checkpoint and writeTo are for while the loop is stopped.
+ */
+public class ReplayRecorder {
+	static final int MAGIC = 0x4d524c47;
+	static final int VERSION = 1;
+	static final int LEVEL = 1;
+	static final int START = 2;
+	static final int SAMPLE = 3;
+	static final int STEP = 4;
+	static final int CHECKPOINT = 5;
+	public static final int DEFAULT_LIMIT = 16 << 20;
+
+	private final int mLimit;
+	private byte[] mBytes = new byte[64 << 10];
+	private int mSize;
+	private boolean mFull;
+
+	/*
+	 * seed is the one the balls' Rng was made from with Rng.BALLS, count,
+	 * sFriction and timeConstant what the ParticleSystem and its
+	 * AdaptiveInput were made with.
+	 */
+	public ReplayRecorder(long seed, int count, float sFriction, float timeConstant, int limit) {
+		mLimit = limit;
+		putInt(MAGIC);
+		putInt(VERSION);
+		putLong(seed);
+		putInt(count);
+		putFloat(sFriction);
+		putFloat(timeConstant);
+	}
+
+	/*
+	 * The balls are on a new level, made from geometry's arguments and
+	 * BallSize. balls is null for a level started afresh, with every
+	 * ball at the start, or the balls where they were placed on it.
+	 */
+	public void level(int level, MazeGeometry geometry, float BallSize, Maze maze, ParticleStore balls) {
+		if (!reserve(64 + maze.cells.length + (balls == null ? 0 : balls.count * 8))) {return;}
+		putByte(LEVEL);
+		putInt(level);
+		putInt(geometry.CellCountX);
+		putInt(geometry.CellCountY);
+		putFloat(geometry.mazeWidthPixels);
+		putFloat(geometry.mazeHeightPixels);
+		putInt(geometry.wallWidth);
+		putInt(geometry.wallHeight);
+		putFloat(geometry.xs);
+		putFloat(geometry.ys);
+		putFloat(BallSize);
+		System.arraycopy(maze.cells, 0, mBytes, mSize, maze.cells.length);
+		mSize += maze.cells.length;
+		putByte(balls == null ? 0 : 1);
+		if (balls != null) {
+			for (int i = 0; i < balls.count; i++) {
+				putFloat(balls.mPosX[i]);
+				putFloat(balls.mPosY[i]);
+			}
+		}
+	}
+
+	void start() {
+		if (reserve(1)) {putByte(START);}
+	}
+
+	void sample(long time, float x, float y) {
+		if (!reserve(17)) {return;}
+		putByte(SAMPLE);
+		putLong(time);
+		putFloat(x);
+		putFloat(y);
+	}
+
+	void step(long start) {
+		if (!reserve(9)) {return;}
+		putByte(STEP);
+		putLong(start);
+	}
+
+	public void checkpoint(ParticleStore balls) {
+		if (!reserve(9)) {return;}
+		putByte(CHECKPOINT);
+		putLong(hash(balls));
+	}
+
+	// whether the log ran past its limit and stopped
+	public boolean isFull() {return mFull;}
+	public int size() {return mSize;}
+
+	public void writeTo(OutputStream out) throws IOException {out.write(mBytes, 0, mSize);}
+
+	// of every ball's position and whether it is in play
+	static long hash(ParticleStore balls) {
+		long h = balls.count;
+		for (int i = 0; i < balls.count; i++) {
+			h = h * 31 + Float.floatToIntBits(balls.mPosX[i]);
+			h = h * 31 + Float.floatToIntBits(balls.mPosY[i]);
+			h = h * 31 + (balls.isEnabled(i) ? 1 : 0);
+		}
+		return h;
+	}
+
+	// makes room for bytes more, or stops the recording for good
+	private boolean reserve(int bytes) {
+		if (mFull) {return false;}
+		if (mSize + bytes > mLimit) {
+			mFull = true;
+			return false;
+		}
+		if (mSize + bytes > mBytes.length) {
+			byte[] grown = new byte[Math.min(Math.max(mBytes.length * 2, mSize + bytes), mLimit)];
+			System.arraycopy(mBytes, 0, grown, 0, mSize);
+			mBytes = grown;
+		}
+		return true;
+	}
+
+	private void putByte(int v) {mBytes[mSize++] = (byte) v;}
+
+	private void putInt(int v) {
+		final byte[] b = mBytes;
+		final int n = mSize;
+		b[n] = (byte) (v >>> 24);
+		b[n + 1] = (byte) (v >>> 16);
+		b[n + 2] = (byte) (v >>> 8);
+		b[n + 3] = (byte) v;
+		mSize = n + 4;
+	}
+
+	private void putLong(long v) {
+		putInt((int) (v >>> 32));
+		putInt((int) v);
+	}
+
+	private void putFloat(float v) {putInt(Float.floatToIntBits(v));}
+}
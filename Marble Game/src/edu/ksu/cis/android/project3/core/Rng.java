@@ -0,0 +1,55 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A small, fast random number generator, xorshift64*, for everything the
+ * game draws: mazes, traps and the balls' friction. Unlike Math.random and
+ * java.util.Random it is not shared and does no synchronization or atomic
+ * updates, so it costs a few shifts and a multiply a number, and the same
+ * seed always gives the same numbers. Use one per thread.
+ *
+ * A seed can feed several streams that don't look alike: the seed and the
+ * stream are mixed together, so the maze, the balls and the next level's
+ * seed each get their own numbers from a level's one Seed.
+ */
+public final class Rng {
+	public static final int MAZE = 0;
+	public static final int BALLS = 1;
+	public static final int NEXT_LEVEL = 2;
+
+	private long mState;
+
+	public Rng(long seed) {this(seed, MAZE);}
+
+	public Rng(long seed, int stream) {
+		// splitmix64's finalizer, so seeds that differ by a bit start far apart
+		long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z ^= z >>> 31;
+		// xorshift never leaves 0
+		mState = z != 0 ? z : 0x9E3779B97F4A7C15L;
+	}
+
+	public long nextLong() {
+		long x = mState;
+		x ^= x >>> 12;
+		x ^= x << 25;
+		x ^= x >>> 27;
+		mState = x;
+		return x * 0x2545F4914F6CDD1DL;
+	}
+
+	public int nextInt() {return (int) (nextLong() >>> 32);}
+
+	/*
+	 * A number from 0 to bound - 1, by multiplying rather than dividing.
+	 * Some come up once more in 2^32 than others, far too little to
+	 * matter to a maze.
+	 */
+	public int nextInt(int bound) {return (int) (((nextLong() >>> 32) * bound) >>> 32);}
+
+	public boolean nextBoolean() {return nextLong() < 0;}
+
+	// from 0 up to but not including 1
+	public float nextFloat() {return (nextLong() >>> 40) * (1.0f / (1 << 24));}
+}
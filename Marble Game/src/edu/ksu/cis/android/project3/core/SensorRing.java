@@ -0,0 +1,55 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A fixed size queue of timestamped tilt samples from one producer thread
+ * to one consumer thread, without locks. Each side only ever writes its
+ * own index; the volatile write of the index is what publishes a sample
+ * to, or frees a slot for, the other side.
+ */
+public class SensorRing {
+	private final int mMask;
+	private final long[] mTime;
+	private final float[] mX;
+	private final float[] mY;
+	// next slot to write, written by the producer only
+	private volatile long mHead;
+	// next slot to read, written by the consumer only
+	private volatile long mTail;
+
+	// capacity is rounded up to a power of two
+	public SensorRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mMask = size - 1;
+		mTime = new long[size];
+		mX = new float[size];
+		mY = new float[size];
+	}
+
+	/*
+	 * Producer side. Adds a sample, or drops it and returns false if the
+	 * consumer has fallen a whole ring behind.
+	 */
+	public boolean offer(long time, float x, float y) {
+		final long head = mHead;
+		if (head - mTail > mMask) {return false;}
+		final int i = (int) head & mMask;
+		mTime[i] = time;
+		mX[i] = x;
+		mY[i] = y;
+		mHead = head + 1;
+		return true;
+	}
+
+	/*
+	 * Consumer side: whether there is a sample, the oldest one's fields,
+	 * and taking it off.
+	 */
+	public boolean hasNext() {return mTail != mHead;}
+	public long nextTime() {return mTime[(int) mTail & mMask];}
+	public float nextX() {return mX[(int) mTail & mMask];}
+	public float nextY() {return mY[(int) mTail & mMask];}
+	public void advance() {mTail = mTail + 1;}
+
+	// consumer side, drops everything queued
+	public void clear() {mTail = mHead;}
+}
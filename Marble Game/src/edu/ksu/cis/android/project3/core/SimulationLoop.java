@@ -0,0 +1,229 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Steps the particle system at a fixed rate on its own thread, so a
+ * slow frame no longer stalls the physics and a physics spike no
+ * longer drops frames. Elapsed time is collected in an accumulator
+ * and spent in whole steps. After each batch of steps the state is
+ * written to the back snapshot, which is then swapped with the front
+ * one; the renderer copies the front snapshot under the same lock and
+ * interpolates between its two positions.
+ *
+ * Tilt samples come in through a SensorRing, timestamped. Every step
+ * uses the tilt averaged over its own stretch of time, holding each
+ * sample until the next one, so no sample is lost however many arrive
+ * between steps, batched or not, as long as the ring holds them. The
+ * ring is sized for the biggest burst the sensor can deliver; a sample
+ * that still finds it full is dropped and counted, in
+ * getDroppedSamples and in the FrameMetrics if there are any. Each sample goes through the
+ * AdaptiveInput's filter as it is taken off the ring, and after each
+ * batch of steps the AdaptiveInput picks the sensor rate from how much
+ * the device and the balls are moving.
+ *
+ * A ReplayRecorder, if there is one, gets every sample as it is taken off
+ * the ring and the time of every step, which is all ReplayPlayer needs to
+ * take the same steps again.
+ */
+public class SimulationLoop implements Runnable {
+	// 120 Hz
+	public static final long STEP_NANOS = 1000000000L / 120;
+	// after a long stall, drop time rather than trying to catch up
+	static final int MAX_STEPS = 12;
+	// samples the ring holds unless told otherwise, and the most it ever holds
+	public static final int DEFAULT_SAMPLES = 64;
+	public static final int MAX_SAMPLES = 1 << 14;
+
+	private final ParticleSystem mParticleSystem;
+	private final ParticleStore mBalls;
+	private Snapshot mFront;
+	private Snapshot mBack;
+	private Thread mThread;
+	private volatile boolean mRunning;
+	private long mSimTime;
+	private final SensorRing mSamples;
+	// written by the sensor thread only
+	private volatile int mDroppedSamples;
+	private FrameMetrics mMetrics;
+	private final AdaptiveInput mInput;
+	// the latest filtered tilt taken off the ring and the average over a step
+	private float mTiltX;
+	private float mTiltY;
+	private float mStepX;
+	private float mStepY;
+	// sensor thread only: System.nanoTime() less the sensor's clock
+	private long mSensorOffset;
+	private boolean mSensorOffsetSet;
+	private ReplayRecorder mRecorder;
+
+	public SimulationLoop(ParticleSystem particleSystem) {
+		this(particleSystem, new AdaptiveInput(AdaptiveInput.DEFAULT_TIME_CONSTANT, true));
+	}
+
+	public SimulationLoop(ParticleSystem particleSystem, AdaptiveInput input) {
+		this(particleSystem, input, DEFAULT_SAMPLES);
+	}
+
+	/*
+	 * samples is how many tilt samples can be waiting for the simulation
+	 * at once, at most MAX_SAMPLES.
+	 */
+	public SimulationLoop(ParticleSystem particleSystem, AdaptiveInput input, int samples) {
+		mParticleSystem = particleSystem;
+		mInput = input;
+		mSamples = new SensorRing(Math.min(samples, MAX_SAMPLES));
+		mBalls = particleSystem.getParticles();
+		mFront = new Snapshot(mBalls.count);
+		mBack = new Snapshot(mBalls.count);
+		reset();
+	}
+
+	/*
+	 * Publishes the balls as they are now, for when they were moved while
+	 * the loop was stopped.
+	 */
+	public synchronized void reset() {
+		mFront.captureLast(mBalls);
+		mFront.capture(mBalls, System.nanoTime());
+	}
+
+	/*
+	 * An acceleration from the sensor, measured at sensorTime on the
+	 * sensor's own clock. Call from one thread only. The sensor's clock
+	 * differs from System.nanoTime() by an unknown offset; the smallest
+	 * difference seen on arrival is the closest to it, since any delivery
+	 * delay, batching included, only adds to it.
+	 */
+	public void addSample(long sensorTime, float sx, float sy) {
+		final long offset = System.nanoTime() - sensorTime;
+		if (!mSensorOffsetSet || offset < mSensorOffset) {
+			mSensorOffset = offset;
+			mSensorOffsetSet = true;
+		}
+		final FrameMetrics metrics = mMetrics;
+		if (metrics != null) {metrics.sample();}
+		if (!mSamples.offer(sensorTime + mSensorOffset, sx, sy)) {
+			mDroppedSamples++;
+			if (metrics != null) {metrics.droppedSample();}
+		}
+	}
+
+	// samples that came while the ring was full, since the loop was made
+	public int getDroppedSamples() {return mDroppedSamples;}
+
+	// for when the sensor is registered again, its clock may have moved
+	public void resetSensorClock() {mSensorOffsetSet = false;}
+
+	public AdaptiveInput getInput() {return mInput;}
+
+	// only while stopped, null to stop recording
+	public void setRecorder(ReplayRecorder recorder) {mRecorder = recorder;}
+
+	// before the sensor is registered, null to stop counting samples into it
+	public void setMetrics(FrameMetrics metrics) {mMetrics = metrics;}
+
+	public void start() {
+		if (mThread != null) {return;}
+		mRunning = true;
+		mThread = new Thread(this, "Simulation");
+		mThread.start();
+	}
+
+	public void stop() {
+		if (mThread == null) {return;}
+		mRunning = false;
+		LockSupport.unpark(mThread);
+		try {mThread.join();}
+		catch (InterruptedException e) {Thread.currentThread().interrupt();}
+		mThread = null;
+	}
+
+	public void run() {
+		final ParticleSystem particleSystem = mParticleSystem;
+		long last = System.nanoTime();
+		long accumulator = 0;
+		// samples queued while stopped are stale
+		mSamples.clear();
+		mInput.reset(last);
+		if (mRecorder != null) {mRecorder.start();}
+		while (mRunning) {
+			final long now = System.nanoTime();
+			accumulator = Math.min(accumulator + now - last, MAX_STEPS * STEP_NANOS);
+			last = now;
+			final int steps = (int) (accumulator / STEP_NANOS);
+			if (steps > 0) {
+				accumulator -= steps * STEP_NANOS;
+				// the wall clock time the first step starts at
+				long t = now - accumulator - steps * STEP_NANOS;
+				for (int s = 0; s < steps; s++) {
+					if (s == steps - 1) {mBack.captureLast(mBalls);}
+					step(t);
+					t += STEP_NANOS;
+				}
+				mInput.update(now, particleSystem.isAtRest());
+				mBack.capture(mBalls, now - accumulator);
+				synchronized (this) {
+					Snapshot s = mFront;
+					mFront = mBack;
+					mBack = s;
+				}
+			}
+			LockSupport.parkNanos(STEP_NANOS - accumulator);
+		}
+	}
+
+	// takes the step from start, on the clock the samples are on
+	void step(long start) {
+		averageTilt(start, start + STEP_NANOS);
+		mSimTime += STEP_NANOS;
+		mParticleSystem.update(mStepX, mStepY, mSimTime);
+		if (mRecorder != null) {mRecorder.step(start);}
+	}
+
+	/*
+	 * For ReplayPlayer, in place of run and addSample: starts over as run
+	 * does, and queues a sample already on the loop's clock.
+	 */
+	void replayStart() {
+		mSamples.clear();
+		mInput.reset(0);
+	}
+
+	boolean replaySample(long time, float x, float y) {return mSamples.offer(time, x, y);}
+
+	/*
+	 * Takes every sample up to end off the ring, in order, through the
+	 * filter, and sets mStepX/Y to the filtered tilt averaged over start
+	 * to end. Samples that came in too late for the step they belong to
+	 * count from start.
+	 */
+	private void averageTilt(long start, long end) {
+		final SensorRing samples = mSamples;
+		final AdaptiveInput input = mInput;
+		final ReplayRecorder recorder = mRecorder;
+		float sumX = 0;
+		float sumY = 0;
+		long t = start;
+		while (samples.hasNext() && samples.nextTime() <= end) {
+			final long at = Math.max(samples.nextTime(), t);
+			sumX += mTiltX * (at - t);
+			sumY += mTiltY * (at - t);
+			t = at;
+			if (recorder != null) {recorder.sample(samples.nextTime(), samples.nextX(), samples.nextY());}
+			input.filter(samples.nextTime(), samples.nextX(), samples.nextY());
+			mTiltX = input.getGravityX();
+			mTiltY = input.getGravityY();
+			samples.advance();
+		}
+		sumX += mTiltX * (end - t);
+		sumY += mTiltY * (end - t);
+		mStepX = sumX / (end - start);
+		mStepY = sumY / (end - start);
+	}
+
+	/*
+	 * Copies the latest published snapshot into the renderer's own.
+	 */
+	public synchronized void read(Snapshot into) {into.copyFrom(mFront);}
+}
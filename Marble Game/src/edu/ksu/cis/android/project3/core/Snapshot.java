@@ -0,0 +1,54 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * The positions of every ball before and after the most recent
+ * simulation step, and the wall-clock time at which the later one
+ * was reached.
+ */
+public class Snapshot {
+	public final float[] mLastX;
+	public final float[] mLastY;
+	public final float[] mX;
+	public final float[] mY;
+	public final int[] mBoxX;
+	public final int[] mBoxY;
+	final long[] mEnabled;
+	public long mTime;
+
+	public Snapshot(int count) {
+		mLastX = new float[count];
+		mLastY = new float[count];
+		mX = new float[count];
+		mY = new float[count];
+		mBoxX = new int[count];
+		mBoxY = new int[count];
+		mEnabled = new long[(count + 63) >> 6];
+	}
+
+	public boolean isEnabled(int i) {return (mEnabled[i >> 6] & (1L << i)) != 0;}
+
+	void captureLast(ParticleStore balls) {
+		System.arraycopy(balls.mPosX, 0, mLastX, 0, mLastX.length);
+		System.arraycopy(balls.mPosY, 0, mLastY, 0, mLastY.length);
+	}
+
+	void capture(ParticleStore balls, long time) {
+		System.arraycopy(balls.mPosX, 0, mX, 0, mX.length);
+		System.arraycopy(balls.mPosY, 0, mY, 0, mY.length);
+		System.arraycopy(balls.mBoxX, 0, mBoxX, 0, mBoxX.length);
+		System.arraycopy(balls.mBoxY, 0, mBoxY, 0, mBoxY.length);
+		balls.copyEnabled(mEnabled);
+		mTime = time;
+	}
+
+	void copyFrom(Snapshot s) {
+		System.arraycopy(s.mLastX, 0, mLastX, 0, mLastX.length);
+		System.arraycopy(s.mLastY, 0, mLastY, 0, mLastY.length);
+		System.arraycopy(s.mX, 0, mX, 0, mX.length);
+		System.arraycopy(s.mY, 0, mY, 0, mY.length);
+		System.arraycopy(s.mBoxX, 0, mBoxX, 0, mBoxX.length);
+		System.arraycopy(s.mBoxY, 0, mBoxY, 0, mBoxY.length);
+		System.arraycopy(s.mEnabled, 0, mEnabled, 0, mEnabled.length);
+		mTime = s.mTime;
+	}
+}
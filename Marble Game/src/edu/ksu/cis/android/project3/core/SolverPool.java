@@ -0,0 +1,103 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * A thread per core but one, parked until there is work. run hands the
+ * parts of a job to them and to the calling thread and returns once every
+ * part is done, so whatever the parts wrote is there for the caller. A
+ * java.util.concurrent pool would allocate a future per part, a few
+ * thousand a second from the collision pass; this allocates nothing.
+ */
+final class SolverPool {
+	interface Job {
+		void run(int part);
+	}
+
+	private static SolverPool sShared;
+
+	private final Thread[] mThreads;
+	private Job mJob;
+	private int mParts;
+	private int mNext;
+	private int mPending;
+	private int mGeneration;
+
+	// one pool for every simulation, its threads are daemons and never stop
+	static synchronized SolverPool shared() {
+		if (sShared == null) {sShared = new SolverPool(Runtime.getRuntime().availableProcessors() - 1);}
+		return sShared;
+	}
+
+	SolverPool(int threads) {
+		mThreads = new Thread[Math.max(threads, 0)];
+		for (int t = 0; t < mThreads.length; t++) {
+			mThreads[t] = new Thread("Solver " + (t + 1)) {
+				@Override
+				public void run() {work();}
+			};
+			mThreads[t].setDaemon(true);
+			mThreads[t].start();
+		}
+	}
+
+	// the threads a job can run on, the caller's included
+	int threads() {return mThreads.length + 1;}
+
+	void run(Job job, int parts) {
+		if (mThreads.length == 0 || parts < 2) {
+			for (int p = 0; p < parts; p++) {job.run(p);}
+			return;
+		}
+		synchronized (this) {
+			mJob = job;
+			mParts = parts;
+			mNext = 0;
+			mPending = parts;
+			mGeneration++;
+			notifyAll();
+		}
+		runParts();
+		boolean interrupted = false;
+		synchronized (this) {
+			// the parts have to be finished before the caller goes on, whatever happens
+			while (mPending > 0) {
+				try {wait();}
+				catch (InterruptedException e) {interrupted = true;}
+			}
+			mJob = null;
+		}
+		if (interrupted) {Thread.currentThread().interrupt();}
+	}
+
+	private void work() {
+		int seen = 0;
+		while (true) {
+			synchronized (this) {
+				while (mGeneration == seen) {
+					try {wait();}
+					catch (InterruptedException e) {return;}
+				}
+				seen = mGeneration;
+			}
+			runParts();
+		}
+	}
+
+	// runs parts of the current job until none are left to take
+	private void runParts() {
+		while (true) {
+			final Job job;
+			final int part;
+			synchronized (this) {
+				if (mJob == null || mNext >= mParts) {return;}
+				job = mJob;
+				part = mNext++;
+			}
+			try {job.run(part);}
+			finally {
+				synchronized (this) {
+					if (--mPending == 0) {notifyAll();}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.Arrays;
+
+/*
+ * The collision pass of a ParticleSystem with many balls, split over
+ * every core. The maze's columns of Boxes are cut into stripes STRIPE
+ * columns wide. A ball is only tested against balls in its own and the
+ * neighbouring cells, so resolving the balls of a stripe only moves balls
+ * binned into it or into the column on either side. With STRIPE at two,
+ * the stripes of the same colour, every other one, share no balls and
+ * are resolved at once; then the other colour is. Each stripe is walked
+ * in a fixed order whatever thread takes it, so the balls end up in the
+ * same place on one core or eight.
+ *
+ * Every iteration bins the balls afresh, sorted by cell, and keeps the
+ * bins while it runs; a ball pushed into another cell is found where it
+ * was binned until the next iteration. Whatever is shared between balls,
+ * the bits that say which are awake and in play, is only changed between
+ * the colours: sleeping balls a stripe wakes are woken after, and traps
+ * and the goal are checked after both, in order, on the calling thread.
+ *
+ * A ball is put back inside its walls right after its own collisions,
+ * but a ball later in the walk, or in the other colour's stripe, can
+ * still push it through one. Every ball pushed is marked, and after both
+ * colours the marked ones are put back inside their walls again, in ball
+ * order on the calling thread, before their Boxes are checked.
+ */
+class StripeSolver implements SolverPool.Job {
+	static final int STRIPE = 2;
+
+	private final ParticleSystem mSystem;
+	private final ParticleStore mBalls;
+	private final SolverPool mPool;
+	private MazeGeometry mGeometry;
+	private int mCellsX;
+	private int mCellsY;
+	private int mStripes;
+	// balls sorted by cell, cell c's are mSorted[mStart[c]] to mSorted[mStart[c + 1] - 1]
+	private int[] mStart;
+	private final int[] mSorted;
+	private final int[] mCell;
+	// balls a stripe woke or pushed and each stripe's contacts, this iteration
+	private final boolean[] mWake;
+	private final boolean[] mPushed;
+	private int[] mContacts;
+	private int mColour;
+
+	StripeSolver(ParticleSystem system, ParticleStore balls, MazeGeometry geometry, SolverPool pool) {
+		mSystem = system;
+		mBalls = balls;
+		mPool = pool;
+		mSorted = new int[balls.count];
+		mCell = new int[balls.count];
+		mWake = new boolean[balls.count];
+		mPushed = new boolean[balls.count];
+		setGeometry(geometry);
+	}
+
+	// keeps the arrays if they are already big enough
+	void setGeometry(MazeGeometry geometry) {
+		mGeometry = geometry;
+		mCellsX = geometry.CellCountX;
+		mCellsY = geometry.CellCountY;
+		mStripes = (mCellsX + STRIPE - 1) / STRIPE;
+		if (mStart == null || mStart.length < mCellsX * mCellsY + 1) {mStart = new int[mCellsX * mCellsY + 1];}
+		if (mContacts == null || mContacts.length < mStripes) {mContacts = new int[mStripes];}
+	}
+
+	void solve() {
+		final ParticleStore balls = mBalls;
+		final ParticleSystem system = mSystem;
+		int iterations = 0;
+		int contacts = 0;
+		boolean more = true;
+		for (; iterations < ParticleSystem.NUM_MAX_ITERATIONS && more; iterations++) {
+			system.nextRound();
+			bin();
+			Arrays.fill(mContacts, 0);
+			for (int colour = 0; colour < 2; colour++) {
+				mColour = colour;
+				mPool.run(this, (mStripes + 1 - colour) / 2);
+				for (int i = 0; i < balls.count; i++) {
+					if (mWake[i]) {
+						mWake[i] = false;
+						balls.wake(i);
+					}
+				}
+			}
+			for (int i = 0; i < balls.count; i++) {
+				if (mPushed[i]) {
+					mPushed[i] = false;
+					if (balls.isAwake(i)) {balls.resolveCollisionWithWalls(i);}
+				}
+			}
+			more = false;
+			for (int s = 0; s < mStripes; s++) {
+				contacts += mContacts[s];
+				more |= mContacts[s] > 0;
+			}
+			for (int i = balls.nextAwake(0); i >= 0; i = balls.nextAwake(i + 1)) {
+				system.checkBox(i);
+			}
+		}
+		system.mIterations = iterations;
+		system.mContacts = contacts;
+	}
+
+	// counting sort of every ball in play by cell, in ball order within a cell
+	private void bin() {
+		final ParticleStore balls = mBalls;
+		final MazeGeometry g = mGeometry;
+		final int cells = mCellsX * mCellsY;
+		final int[] start = mStart;
+		Arrays.fill(start, 0, cells + 1, 0);
+		for (int i = balls.nextEnabled(0); i >= 0; i = balls.nextEnabled(i + 1)) {
+			final int c = BroadPhase.cellOf(g, balls.mPosX[i], balls.mPosY[i]);
+			mCell[i] = c;
+			start[c + 1]++;
+		}
+		for (int c = 0; c < cells; c++) {start[c + 1] += start[c];}
+		// start[c] runs up to start[c + 1] as cell c fills, then everything shifts back
+		for (int i = balls.nextEnabled(0); i >= 0; i = balls.nextEnabled(i + 1)) {
+			mSorted[start[mCell[i]]++] = i;
+		}
+		for (int c = cells; c > 0; c--) {start[c] = start[c - 1];}
+		start[0] = 0;
+	}
+
+	// resolves the part-th stripe of the current colour
+	public void run(int part) {
+		final ParticleStore balls = mBalls;
+		final int stripe = part * 2 + mColour;
+		final int first = stripe * STRIPE;
+		final int end = Math.min(first + STRIPE, mCellsX);
+		final int[] start = mStart;
+		final int[] sorted = mSorted;
+		int contacts = 0;
+		for (int c = first * mCellsY; c < end * mCellsY; c++) {
+			for (int n = start[c]; n < start[c + 1]; n++) {
+				final int i = sorted[n];
+				if (!balls.isAwake(i)) {continue;}
+				contacts += collide(i, c, stripe);
+				/*
+				 * Finally make sure the particle doesn't intersects
+				 * with the walls.
+				 */
+				balls.resolveCollisionWithWalls(i);
+			}
+		}
+		mContacts[stripe] = contacts;
+	}
+
+	/*
+	 * Tests awake ball i, binned into cell c, against the balls in the 3x3
+	 * cells around c. Pairs of awake balls in the same stripe are tested
+	 * by the lower ball; any other pair by each ball that is awake. A
+	 * sleeping ball is woken or pushed off of as ParticleSystem's own
+	 * collision pass does it. Every ball i pushes is marked for solve to
+	 * put back inside its walls. Returns how many balls i was touching.
+	 */
+	private int collide(int i, int c, int stripe) {
+		final ParticleStore balls = mBalls;
+		final ParticleSystem system = mSystem;
+		final int[] start = mStart;
+		final int[] sorted = mSorted;
+		final boolean moving = balls.mStill[i] < 2;
+		final int cx = c / mCellsY;
+		final int cy = c % mCellsY;
+		int contacts = 0;
+		for (int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, mCellsX - 1); x++) {
+			final boolean sameStripe = x / STRIPE == stripe;
+			for (int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, mCellsY - 1); y++) {
+				final int d = x * mCellsY + y;
+				for (int n = start[d]; n < start[d + 1]; n++) {
+					final int j = sorted[n];
+					if (j == i) {continue;}
+					final boolean asleep = !balls.isAwake(j);
+					if (sameStripe && !asleep && j < i) {continue;}
+					final boolean push = !asleep || moving;
+					if (system.collide(i, j, push)) {
+						contacts++;
+						if (push) {mPushed[j] = true;}
+						if (asleep && moving) {mWake[j] = true;}
+					}
+				}
+			}
+		}
+		return contacts;
+	}
+}
@@ -0,0 +1,177 @@
+package edu.ksu.cis.android.project3.core;
+
+import java.util.Random;
+
+/*
+ * Command line driver for the simulation core. Builds a level the same way
+ * the game does, feeds the particle system a synthetic tilt trace at the
+ * game's fixed step rate as fast as it can, and prints how long the steps
+ * took. Nothing here needs a device, so it can be run and profiled on any
+ * desktop JVM:
+ *
+ *   javac -d out src/edu/ksu/cis/android/project3/core/*.java
+ *   java -cp out edu.ksu.cis.android.project3.core.TiltReplay -balls 1000 -trace circle
+ *
+ * Options, all optional:
+ *   -cells X Y     maze size in boxes (15 x 22)
+ *   -balls N       number of balls (1)
+ *   -traps R       boxes per trap, 0 for none (0)
+ *   -algorithm A   GROWING_TREE, KRUSKAL, WILSON or ELLER (GROWING_TREE)
+ *   -seed S        maze seed (random)
+ *   -size S        ball size relative to a box (0.5714285)
+ *   -screen W H    maze size in pixels (480 x 800)
+ *   -dpi D         screen density (240)
+ *   -seconds T     simulated time (10)
+ *   -trace NAME    still, tilt, sine, circle or shake (circle)
+ *   -metrics       prints the steps' FrameMetrics too
+ */
+public class TiltReplay {
+	// standard gravity, the most the accelerometer reports on a tilted device
+	static final float G = 9.80665f;
+
+	public static void main(String[] args) {
+		int CellCountX = 15;
+		int CellCountY = 22;
+		int NUM_PARTICLES = 1;
+		float TrapBoxRatio = 0;
+		float BallSize = 1/1.75f;
+		int width = 480;
+		int height = 800;
+		float dpi = 240;
+		float seconds = 10;
+		String trace = "circle";
+		boolean metrics = false;
+		MazeAlgorithm algorithm = MazeAlgorithm.GROWING_TREE;
+		long seed = new Random().nextLong();
+		try {
+			for (int a = 0; a < args.length; a++) {
+				String arg = args[a];
+				if (arg.equals("-cells")) {
+					CellCountX = Integer.parseInt(args[++a]);
+					CellCountY = Integer.parseInt(args[++a]);
+				} else if (arg.equals("-balls")) {NUM_PARTICLES = Integer.parseInt(args[++a]);}
+				else if (arg.equals("-traps")) {TrapBoxRatio = Float.parseFloat(args[++a]);}
+				else if (arg.equals("-algorithm")) {algorithm = MazeAlgorithm.valueOf(args[++a]);}
+				else if (arg.equals("-seed")) {seed = Long.parseLong(args[++a]);}
+				else if (arg.equals("-size")) {BallSize = Float.parseFloat(args[++a]);}
+				else if (arg.equals("-screen")) {
+					width = Integer.parseInt(args[++a]);
+					height = Integer.parseInt(args[++a]);
+				} else if (arg.equals("-dpi")) {dpi = Float.parseFloat(args[++a]);}
+				else if (arg.equals("-seconds")) {seconds = Float.parseFloat(args[++a]);}
+				else if (arg.equals("-trace")) {trace = args[++a];}
+				else if (arg.equals("-metrics")) {metrics = true;}
+				else {throw new IllegalArgumentException("unknown option " + arg);}
+			}
+		} catch (RuntimeException e) {
+			System.err.println("TiltReplay: " + e.getMessage());
+			System.err.println("usage: TiltReplay [-cells X Y] [-balls N] [-traps R]"
+					+ " [-algorithm A] [-seed S] [-size S]"
+					+ " [-screen W H] [-dpi D] [-seconds T] [-trace still|tilt|sine|circle|shake] [-metrics]");
+			System.exit(2);
+			return;
+		}
+
+		int TrapCount = TrapBoxRatio == 0 ? 0 : (int) (CellCountX * CellCountY / TrapBoxRatio);
+		MazeGeometry geometry = geometry(CellCountX, CellCountY, width, height, dpi, BallSize);
+
+		long start = System.nanoTime();
+		Maze maze = new Maze(CellCountX, CellCountY, TrapCount, algorithm.generator, seed);
+		long mazeNanos = System.nanoTime() - start;
+		ParticleSystem particleSystem = new ParticleSystem(NUM_PARTICLES, geometry, maze, 0.1f, new Rng(seed, Rng.BALLS));
+		FrameMetrics frameMetrics = metrics ? new FrameMetrics() : null;
+		particleSystem.setMetrics(frameMetrics);
+
+		final long step = SimulationLoop.STEP_NANOS;
+		final int steps = (int) (seconds * 1000000000L / step);
+		long total = 0;
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (int s = 1; s <= steps; s++) {
+			final long now = s * step;
+			final float t = now / 1000000000f;
+			final float sx = tiltX(trace, t);
+			final float sy = tiltY(trace, t);
+			final long before = System.nanoTime();
+			particleSystem.update(sx, sy, now);
+			final long took = System.nanoTime() - before;
+			total += took;
+			min = Math.min(min, took);
+			max = Math.max(max, took);
+		}
+
+		ParticleStore balls = particleSystem.getParticles();
+		int enabled = 0;
+		int awake = 0;
+		for (int i = balls.nextEnabled(0); i >= 0; i = balls.nextEnabled(i + 1)) {enabled++;}
+		for (int i = balls.nextAwake(0); i >= 0; i = balls.nextAwake(i + 1)) {awake++;}
+		System.out.println("maze      " + CellCountX + " x " + CellCountY + ", " + TrapCount
+				+ " traps, generated in " + mazeNanos / 1000 + " us");
+		System.out.println("balls     " + NUM_PARTICLES + ", " + enabled + " still in play, "
+				+ (enabled - awake) + " asleep");
+		if (NUM_PARTICLES >= ParticleSystem.STRIPED_MIN_BALLS) {
+			System.out.println("solver    stripes on " + SolverPool.shared().threads() + " threads");
+		}
+		System.out.println("trace     " + trace + ", " + steps + " steps of " + step / 1000 + " us");
+		System.out.println("step      mean " + total / Math.max(steps, 1) / 1000 + " us, min "
+				+ min / 1000 + " us, max " + max / 1000 + " us");
+		System.out.println("speed     " + (long) (steps / (total / 1e9)) + " steps/s, "
+				+ String.format("%.1f", (seconds * 1e9) / total) + "x real time");
+		if (frameMetrics != null) {frameMetrics.dump(System.out);}
+	}
+
+	/*
+	 * Lays a maze out on a screen the way the game does with automatic
+	 * borders on.
+	 */
+	static MazeGeometry geometry(int CellCountX, int CellCountY, int width, int height, float dpi, float BallSize) {
+		int wallWidth = (int) (width / (10f * CellCountX));
+		int wallHeight = (int) (height / (10f * CellCountY));
+		float metersToPixels = dpi / 0.0254f;
+		return new MazeGeometry(CellCountX, CellCountY, width, height,
+				wallWidth, wallHeight, metersToPixels, metersToPixels, BallSize);
+	}
+
+	/*
+	 * The synthetic traces, in the sensor's units of m/s^2. A positive x
+	 * reading rolls the balls left and a positive y reading rolls them down.
+	 */
+	static float tiltX(String trace, float t) {
+		if (trace.equals("still")) {return 0;}
+		if (trace.equals("tilt")) {return -0.3f * G;}
+		if (trace.equals("sine")) {return 0.5f * G * (float) Math.sin(t * 2 * Math.PI / 4);}
+		if (trace.equals("circle")) {return 0.4f * G * (float) Math.cos(t * 2 * Math.PI / 3);}
+		if (trace.equals("shake")) {return 0.8f * G * noise(t * 7f);}
+		throw new IllegalArgumentException("unknown trace " + trace);
+	}
+
+	static float tiltY(String trace, float t) {
+		if (trace.equals("still")) {return 0;}
+		if (trace.equals("tilt")) {return 0.3f * G;}
+		if (trace.equals("sine")) {return 0;}
+		if (trace.equals("circle")) {return 0.4f * G * (float) Math.sin(t * 2 * Math.PI / 3);}
+		if (trace.equals("shake")) {return 0.8f * G * noise(t * 7f + 100f);}
+		throw new IllegalArgumentException("unknown trace " + trace);
+	}
+
+	/*
+	 * Smooth repeatable noise in [-1, 1], so shake traces are the same on
+	 * every run.
+	 */
+	static float noise(float t) {
+		final int i = (int) Math.floor(t);
+		final float f = t - i;
+		final float a = hash(i);
+		final float b = hash(i + 1);
+		final float u = f * f * (3 - 2 * f);
+		return a + (b - a) * u;
+	}
+
+	static float hash(int i) {
+		int h = i * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return (h & 0xFFFF) / 32767.5f - 1f;
+	}
+}
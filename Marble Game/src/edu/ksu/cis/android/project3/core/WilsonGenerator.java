@@ -0,0 +1,39 @@
+package edu.ksu.cis.android.project3.core;
+
+/*
+ * Wilson's algorithm: from each Box not yet in the maze, walks at random
+ * until it hits the maze, then carves the walk with its loops erased. The
+ * loops are erased for free by remembering only the last way out of each
+ * Box. Every maze the grid can hold is equally likely, unlike with the
+ * other generators, but the first walks wander for a while on a big grid.
+ */
+public class WilsonGenerator implements MazeGenerator {
+	public void carve(int CellCountX, int CellCountY, Rng random, byte[] cells) {
+		final int count = CellCountX * CellCountY;
+		final boolean[] inMaze = new boolean[count];
+		// the side each Box was last left through on the current walk
+		final byte[] exit = new byte[count];
+
+		inMaze[random.nextInt(count)] = true;
+		for (int start = 0; start < count; start++) {
+			if (inMaze[start]) {continue;}
+			int c = start;
+			while (!inMaze[c]) {
+				final int x = c / CellCountY;
+				final int y = c % CellCountY;
+				int side;
+				do {
+					side = 1 << random.nextInt(4);
+				} while ((side == Maze.LEFT && x == 0) || (side == Maze.RIGHT && x == CellCountX - 1)
+						|| (side == Maze.UP && y == 0) || (side == Maze.DOWN && y == CellCountY - 1));
+				exit[c] = (byte) side;
+				c = Maze.neighbor(c, side, CellCountY);
+			}
+			for (c = start; !inMaze[c]; ) {
+				inMaze[c] = true;
+				Maze.connect(cells, c, exit[c], CellCountY);
+				c = Maze.neighbor(c, exit[c], CellCountY);
+			}
+		}
+	}
+}